@@ -0,0 +1,69 @@
+package org.mattseq.gitgud.benchmarks;
+
+import org.mattseq.gitgud.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recording block changes, as the trackers do for every block placed or broken, with the background journal writer
+ * running. The threaded variants have several players building in the same world at once, each in an area of their
+ * own, which is the contention a busy server puts on one repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddBlockChangeBenchmark {
+    private final AtomicInteger nextPlayer = new AtomicInteger();
+    private Repository repository;
+
+    @Setup
+    public void setup() {
+        repository = BenchmarkRepositories.create("add");
+    }
+
+    @State(Scope.Thread)
+    public static class Player {
+        private BenchmarkRepositories.Builder builder;
+
+        @Setup
+        public void setup(AddBlockChangeBenchmark benchmark) {
+            int player = benchmark.nextPlayer.getAndIncrement();
+            // a 64 by 64 plot each, so the working set stops growing once every position has been touched
+            builder = new BenchmarkRepositories.Builder(new Random(player), player * 64, 0, 64);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singlePlayer(Player player) {
+        repository.addBlockChange(player.builder.next(), true);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void fourPlayers(Player player) {
+        repository.addBlockChange(player.builder.next(), true);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void sixteenPlayers(Player player) {
+        repository.addBlockChange(player.builder.next(), true);
+    }
+}
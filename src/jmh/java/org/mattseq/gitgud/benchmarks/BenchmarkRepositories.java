@@ -0,0 +1,102 @@
+package org.mattseq.gitgud.benchmarks;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.dto.BlockChange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the repositories and block changes the benchmarks work on.
+ */
+final class BenchmarkRepositories {
+    static final String EMPTY = "Empty";
+    static final String[] BLOCKS = {"Rock_Stone", "Rock_Stone_Cobble", "Rock_Stone_Brick", "Soil_Dirt",
+            "Soil_Grass", "Wood_Oak_Planks", "Wood_Oak_Trunk", "Rock_Sandstone_Brick", "Plant_Leaves_Oak", "Glass"};
+
+    private static final AtomicInteger nextWorld = new AtomicInteger();
+    private static boolean initialized;
+
+    private BenchmarkRepositories() {
+    }
+
+    /**
+     * Opens a new, empty repository. Every call gets a world of its own, so benchmarks sharing a fork never see each
+     * other's history.
+     */
+    static Repository create(String name) {
+        synchronized (BenchmarkRepositories.class) {
+            if (!initialized) {
+                Repository.initialize();
+                initialized = true;
+            }
+        }
+        return Repository.forWorld(name + "-" + nextWorld.incrementAndGet());
+    }
+
+    /**
+     * Adds {@code commits} commits of {@code changesPerCommit} changes each, built by one player moving around the
+     * same area.
+     */
+    static void fill(Repository repository, int commits, int changesPerCommit, long seed) {
+        Builder builder = new Builder(new Random(seed), 0, 0, 256);
+        for (int i = 0; i < commits; i++) {
+            for (int j = 0; j < changesPerCommit; j++) {
+                repository.addBlockChange(builder.next(), false);
+            }
+            // commits are named by their millisecond, so never save two in the same one
+            long last = repository.getLastCommitTimestamp();
+            while (System.currentTimeMillis() <= last) {
+                Thread.onSpinWait();
+            }
+            Repository.ActionResult result = repository.saveCommit("commit " + i);
+            if (!result.success) {
+                throw new IllegalStateException("Failed to fill repository: " + result.message);
+            }
+        }
+    }
+
+    static List<BlockChange> changes(int count, long seed) {
+        Builder builder = new Builder(new Random(seed), 0, 0, 256);
+        List<BlockChange> changes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            changes.add(builder.next());
+        }
+        return changes;
+    }
+
+    /**
+     * A player building: a short random walk of mostly placements, with the odd block broken, inside a square area
+     * around a start column.
+     */
+    static final class Builder {
+        private final Random random;
+        private final int originX;
+        private final int originZ;
+        private final int size;
+        private int x;
+        private int y = 64;
+        private int z;
+
+        Builder(Random random, int originX, int originZ, int size) {
+            this.random = random;
+            this.originX = originX;
+            this.originZ = originZ;
+            this.size = size;
+        }
+
+        BlockChange next() {
+            x = Math.floorMod(x + random.nextInt(3) - 1, size);
+            y = Math.clamp(y + random.nextInt(3) - 1, 40, 120);
+            z = Math.floorMod(z + random.nextInt(3) - 1, size);
+            String block = BLOCKS[random.nextInt(BLOCKS.length)];
+            Vector3i position = new Vector3i(originX + x, y, originZ + z);
+            return random.nextInt(5) == 0
+                    ? new BlockChange(position, block, EMPTY)
+                    : new BlockChange(position, EMPTY, block);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.mattseq.gitgud.benchmarks;
+
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.dto.CommitInfo;
+import org.mattseq.gitgud.trackers.WorldEditApplySystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking out between the oldest and the newest commit and back, including writing the planned edits into an
+ * in-memory world through the stand-in apply system. Each call crosses the whole history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckoutBenchmark {
+    @Param({"100", "1000"})
+    public int commits;
+
+    @Param({"200"})
+    public int changesPerCommit;
+
+    private Repository repository;
+    private World world;
+    private long oldest;
+    private long newest;
+
+    @Setup
+    public void setup() {
+        repository = BenchmarkRepositories.create("checkout");
+        BenchmarkRepositories.fill(repository, commits, changesPerCommit, 1);
+        world = Universe.get().getWorld(repository.getWorldName());
+        List<CommitInfo> history = repository.getCommitInfoHistory();
+        newest = history.getFirst().timestamp;
+        oldest = history.getLast().timestamp;
+    }
+
+    @Benchmark
+    public int checkoutAndApply() {
+        long target = repository.getCurrentTimestamp() == newest ? oldest : newest;
+        Repository.ActionResult result = repository.checkoutTimestamp(target);
+        if (!result.success) {
+            throw new IllegalStateException(result.message);
+        }
+        return WorldEditApplySystem.applyAll(world);
+    }
+}
@@ -0,0 +1,70 @@
+package org.mattseq.gitgud.benchmarks;
+
+import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.dto.Commit;
+import org.mattseq.gitgud.dto.CommitInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading history from repositories of increasing length: the newest page of decoded commits, a page of headers from
+ * the middle of the history, and the whole history, decoded and as headers only.
+ * <p>
+ * Setting up the larger repositories takes a while, since every commit is saved through the repository the way
+ * {@code /gitgud commit} saves it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommitHistoryBenchmark {
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"100", "1000", "10000"})
+    public int commits;
+
+    @Param({"50"})
+    public int changesPerCommit;
+
+    private Repository repository;
+
+    @Setup
+    public void setup() {
+        repository = BenchmarkRepositories.create("history");
+        BenchmarkRepositories.fill(repository, commits, changesPerCommit, 1);
+    }
+
+    @Benchmark
+    public List<Commit> newestCommits() {
+        return repository.getCommitHistory(PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Commit> getCommitHistory() {
+        return repository.getCommitHistory();
+    }
+
+    @Benchmark
+    public List<CommitInfo> getCommitInfoHistory() {
+        return repository.getCommitInfoHistory();
+    }
+
+    @Benchmark
+    public List<CommitInfo> middlePage() {
+        return repository.getCommitInfoHistory(commits / 2, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,124 @@
+package org.mattseq.gitgud.benchmarks;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.dto.BlockChange;
+import org.mattseq.gitgud.dto.Commit;
+import org.mattseq.gitgud.storage.ChangeBuffer;
+import org.mattseq.gitgud.storage.CommitCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding one commit: the gzipped JSON that older commits and stashes are still read from, and the
+ * binary format commits are written in now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommitSerializationBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int changes;
+
+    private LegacyCommit legacyCommit;
+    private String json;
+    private byte[] jsonBytes;
+    private byte[] gzippedJson;
+    private Commit commit;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        List<BlockChange> blockChanges = BenchmarkRepositories.changes(changes, 1);
+        legacyCommit = new LegacyCommit("benchmark", blockChanges);
+        json = Repository.serializeJson(legacyCommit);
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        gzippedJson = Repository.gzipCompress(jsonBytes);
+
+        ChangeBuffer buffer = new ChangeBuffer(changes);
+        blockChanges.forEach(buffer::add);
+        commit = new Commit("benchmark", buffer, legacyCommit.timestamp, 0);
+        encoded = encode();
+    }
+
+    @Benchmark
+    public String serializeJson() {
+        return Repository.serializeJson(legacyCommit);
+    }
+
+    @Benchmark
+    public Commit deserializeJson() {
+        return Repository.deserializeJson(json, Commit.class);
+    }
+
+    @Benchmark
+    public byte[] gzipCompress() {
+        return Repository.gzipCompress(jsonBytes);
+    }
+
+    @Benchmark
+    public byte[] gzipDecompress() {
+        return Repository.gzipDecompress(gzippedJson);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CommitCodec.writeCommit(out, commit);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Commit decode() throws IOException {
+        return CommitCodec.readCommit(new ByteArrayInputStream(encoded), "benchmark", null);
+    }
+
+    // the shape commits were saved in before the binary format, with block IDs as strings
+    private static final class LegacyCommit {
+        final String message;
+        final List<LegacyBlockChange> blockChanges = new ArrayList<>();
+        final long timestamp = System.currentTimeMillis();
+        final long parentCommit = 0;
+
+        LegacyCommit(String message, List<BlockChange> changes) {
+            this.message = message;
+            for (BlockChange change : changes) {
+                blockChanges.add(new LegacyBlockChange(change));
+            }
+        }
+    }
+
+    private static final class LegacyBlockChange {
+        final Vector3i position;
+        final String oldBlockId;
+        final String newBlockId;
+        final long timestamp;
+
+        LegacyBlockChange(BlockChange change) {
+            position = change.position;
+            oldBlockId = change.getOldBlockId();
+            newBlockId = change.getNewBlockId();
+            timestamp = change.timestamp;
+        }
+    }
+}
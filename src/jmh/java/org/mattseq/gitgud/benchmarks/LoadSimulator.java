@@ -0,0 +1,345 @@
+package org.mattseq.gitgud.benchmarks;
+
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.asset.type.item.config.Item;
+import com.hypixel.hytale.server.core.event.events.ecs.BreakBlockEvent;
+import com.hypixel.hytale.server.core.event.events.ecs.PlaceBlockEvent;
+import com.hypixel.hytale.server.core.inventory.ItemStack;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.dto.CommitInfo;
+import org.mattseq.gitgud.dto.MetricsReport;
+import org.mattseq.gitgud.metrics.LatencyHistogram;
+import org.mattseq.gitgud.metrics.Metrics;
+import org.mattseq.gitgud.trackers.BlockBreakTrackerSystem;
+import org.mattseq.gitgud.trackers.BlockPlaceTrackerSystem;
+import org.mattseq.gitgud.trackers.WorldEditApplySystem;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a synthetic build session headless: players placing and breaking blocks in in-memory worlds, with every
+ * event handled by the real trackers, and commits, checkouts and reverts run between events the way a player's
+ * command would. Every few seconds it prints the event rate, the trackers' p99 handling time, heap use and the size
+ * of {@code .gitgud}, and a summary at the end.
+ * <p>
+ * Each world gets its own thread, standing in for that world's game thread, and its players take turns. Edits queued
+ * by checkouts and reverts are written at once instead of a slice per tick.
+ */
+public final class LoadSimulator {
+    private static final Path REPO_PATH = Path.of(".gitgud");
+
+    private static final LatencyHistogram placeLatency = Metrics.latency("tracking.placeHandle");
+    private static final LatencyHistogram breakLatency = Metrics.latency("tracking.breakHandle");
+    private static final LatencyHistogram commitLatency = Metrics.latency("simulator.commit");
+    private static final LatencyHistogram checkoutLatency = Metrics.latency("simulator.checkout");
+    private static final LatencyHistogram revertLatency = Metrics.latency("simulator.revert");
+
+    private final int players;
+    private final int worlds;
+    private final long events;
+    private final long eventsPerSecond;
+    private final long commitEvery;
+    private final int checkoutEvery;
+    private final int checkoutDepth;
+    private final int revertEvery;
+    private final int reportSeconds;
+
+    private final BlockPlaceTrackerSystem placeTracker = new BlockPlaceTrackerSystem();
+    private final BlockBreakTrackerSystem breakTracker = new BlockBreakTrackerSystem();
+    private final ArchetypeChunk<EntityStore> archetypeChunk = new ArchetypeChunk<>();
+    private final CommandBuffer<EntityStore> commandBuffer = new CommandBuffer<>();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final LongAdder eventsHandled = new LongAdder();
+    private final LongAdder operationsFailed = new LongAdder();
+
+    private long startNanos;
+    private long baselineHeap;
+    private long peakHeap;
+    private long lastReportNanos;
+    private long lastReportEvents;
+
+    private LoadSimulator(Map<String, String> options) {
+        players = Integer.parseInt(options.get("players"));
+        worlds = Integer.parseInt(options.get("worlds"));
+        events = Long.parseLong(options.get("events"));
+        eventsPerSecond = Long.parseLong(options.get("rate"));
+        commitEvery = Long.parseLong(options.get("commit-every"));
+        checkoutEvery = Integer.parseInt(options.get("checkout-every"));
+        checkoutDepth = Integer.parseInt(options.get("checkout-depth"));
+        revertEvery = Integer.parseInt(options.get("revert-every"));
+        reportSeconds = Integer.parseInt(options.get("report-seconds"));
+        if (players < worlds || worlds <= 0 || events <= 0 || commitEvery <= 0 || reportSeconds <= 0) {
+            throw new IllegalArgumentException("Need at least one player per world, and positive events, commit-every and report-seconds.");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("players", "100");
+        options.put("worlds", "1");
+        options.put("events", "5000000");
+        // total events per second across every world, 0 for as fast as they can be handled
+        options.put("rate", "0");
+        // events handled in a world between two commits
+        options.put("commit-every", "20000");
+        // every this many commits, check out a commit checkout-depth below HEAD and back again (0 disables)
+        options.put("checkout-every", "10");
+        options.put("checkout-depth", "5");
+        // every this many commits, revert the newest one (0 disables)
+        options.put("revert-every", "25");
+        options.put("report-seconds", "5");
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i].startsWith("--") ? args[i].substring(2) : null;
+            if (name == null || !options.containsKey(name) || i + 1 >= args.length) {
+                System.err.println("Usage: LoadSimulator " + usage(options));
+                System.exit(2);
+            }
+            options.put(name, args[++i]);
+        }
+        new LoadSimulator(options).run();
+    }
+
+    private static String usage(Map<String, String> defaults) {
+        StringBuilder usage = new StringBuilder();
+        defaults.forEach((name, value) -> usage.append("[--").append(name).append(' ').append(value).append("] "));
+        return usage.toString().trim();
+    }
+
+    private void run() throws InterruptedException {
+        Repository.initialize();
+        System.out.printf("Simulating %,d events from %d players in %d world(s)%s, committing every %,d events per world%n",
+                events, players, worlds, eventsPerSecond > 0 ? " at " + eventsPerSecond + " events/s" : "", commitEvery);
+
+        System.gc();
+        baselineHeap = memory.getHeapMemoryUsage().getUsed();
+        startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gitgud-simulator-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.out.printf("%8s %14s %12s %14s %14s %12s %12s%n",
+                "seconds", "events", "events/s", "p99 place us", "p99 break us", "heap MB", ".gitgud MB");
+        reporter.scheduleAtFixedRate(this::report, reportSeconds, reportSeconds, TimeUnit.SECONDS);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < worlds; w++) {
+            int worldIndex = w;
+            // spread the players, and the events, as evenly as possible over the worlds
+            int worldPlayers = players / worlds + (w < players % worlds ? 1 : 0);
+            long worldEvents = events / worlds + (w < events % worlds ? 1 : 0);
+            Thread thread = new Thread(() -> simulateWorld(worldIndex, worldPlayers, worldEvents), "gitgud-simulator-world-" + w);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        reporter.shutdownNow();
+        report();
+        Repository.shutdown();
+        summarize(elapsedNanos);
+    }
+
+    private void simulateWorld(int worldIndex, int worldPlayers, long worldEvents) {
+        World world = Universe.get().getWorld("simulated-" + worldIndex);
+        Store<EntityStore> store = new Store<>(new EntityStore(world));
+        Repository repository = Repository.forWorld(world);
+        Player[] worldPlayerList = new Player[worldPlayers];
+        for (int p = 0; p < worldPlayers; p++) {
+            worldPlayerList[p] = new Player(new Random(worldIndex * 100_003L + p), p);
+        }
+
+        long intervalNanos = eventsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) * worlds / eventsPerSecond : 0;
+        long worldStart = System.nanoTime();
+        int commits = 0;
+        for (long n = 0; n < worldEvents; n++) {
+            if (intervalNanos > 0) {
+                long due = worldStart + n * intervalNanos;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            worldPlayerList[(int) (n % worldPlayers)].act(store);
+            eventsHandled.increment();
+
+            if ((n + 1) % commitEvery == 0) {
+                commits++;
+                commit(repository, commits);
+                if (checkoutEvery > 0 && commits % checkoutEvery == 0) {
+                    checkoutAndBack(repository, world);
+                }
+                if (revertEvery > 0 && commits % revertEvery == 0) {
+                    revert(repository, world);
+                }
+            }
+        }
+    }
+
+    private void commit(Repository repository, int number) {
+        // commits are named by their millisecond, so never save two in the same one
+        long last = repository.getLastCommitTimestamp();
+        while (System.currentTimeMillis() <= last) {
+            Thread.onSpinWait();
+        }
+        long start = System.nanoTime();
+        Repository.ActionResult result = repository.saveCommit("simulated commit " + number);
+        commitLatency.recordSince(start);
+        if (!result.success) {
+            operationsFailed.increment();
+        }
+    }
+
+    private void checkoutAndBack(Repository repository, World world) {
+        List<CommitInfo> history = repository.getCommitInfoHistory(checkoutDepth + 1);
+        if (history.size() <= checkoutDepth) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (!repository.checkoutTimestamp(history.get(checkoutDepth).timestamp).success) {
+            operationsFailed.increment();
+        }
+        WorldEditApplySystem.applyAll(world);
+        if (!repository.checkoutTimestamp(history.getFirst().timestamp).success) {
+            operationsFailed.increment();
+        }
+        WorldEditApplySystem.applyAll(world);
+        checkoutLatency.recordSince(start);
+    }
+
+    private void revert(Repository repository, World world) {
+        long start = System.nanoTime();
+        if (!repository.revertLatestCommit().success) {
+            operationsFailed.increment();
+        }
+        WorldEditApplySystem.applyAll(world);
+        revertLatency.recordSince(start);
+    }
+
+    private synchronized void report() {
+        long now = System.nanoTime();
+        long handled = eventsHandled.sum();
+        double intervalSeconds = (now - lastReportNanos) / 1e9;
+        long rate = intervalSeconds > 0 ? Math.round((handled - lastReportEvents) / intervalSeconds) : 0;
+        lastReportNanos = now;
+        lastReportEvents = handled;
+        long heap = memory.getHeapMemoryUsage().getUsed();
+        peakHeap = Math.max(peakHeap, heap);
+        System.out.printf("%8d %,14d %,12d %14.1f %14.1f %,12.1f %,12.1f%n",
+                TimeUnit.NANOSECONDS.toSeconds(now - startNanos), handled, rate,
+                placeLatency.summarize().p99Nanos / 1e3, breakLatency.summarize().p99Nanos / 1e3,
+                heap / 1e6, directorySize(REPO_PATH) / 1e6);
+    }
+
+    private void summarize(long elapsedNanos) {
+        System.gc();
+        long retainedHeap = memory.getHeapMemoryUsage().getUsed();
+        MetricsReport report = Metrics.report();
+        long handled = eventsHandled.sum();
+
+        System.out.println();
+        System.out.printf("Handled %,d events in %.1f s: %,d events/s%n",
+                handled, elapsedNanos / 1e9, Math.round(handled / (elapsedNanos / 1e9)));
+        System.out.printf("Heap: %,.1f MB at start, %,.1f MB peak, %,.1f MB retained after GC (%+,.1f MB)%n",
+                baselineHeap / 1e6, peakHeap / 1e6, retainedHeap / 1e6, (retainedHeap - baselineHeap) / 1e6);
+        long repositorySize = directorySize(REPO_PATH);
+        System.out.printf(".gitgud: %,.1f MB, %,d commits, %.1f bytes per event%n", repositorySize / 1e6,
+                report.gauges.getOrDefault("repository.commits", 0L), handled == 0 ? 0.0 : (double) repositorySize / handled);
+        if (operationsFailed.sum() > 0) {
+            System.out.printf("%,d commits, checkouts or reverts failed, see the warnings above%n", operationsFailed.sum());
+        }
+        System.out.printf("%n%-26s %10s %10s %10s %10s %10s%n", "latency (us)", "count", "mean", "p99", "p99.9", "max");
+        for (String name : List.of("tracking.placeHandle", "tracking.breakHandle", "tracking.addBlockChange",
+                "journal.append", "commit.save", "checkout.plan", "simulator.commit", "simulator.checkout", "simulator.revert")) {
+            MetricsReport.Latency latency = report.latencies.get(name);
+            if (latency == null || latency.count == 0) {
+                continue;
+            }
+            System.out.printf("%-26s %,10d %,10.1f %,10.1f %,10.1f %,10.1f%n", name, latency.count, latency.meanNanos / 1e3,
+                    latency.p99Nanos / 1e3, latency.p999Nanos / 1e3, latency.maxNanos / 1e3);
+        }
+    }
+
+    private static long directorySize(Path directory) {
+        long[] size = {0};
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    size[0] += attributes.size();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // written or deleted by a background writer while walking
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            return -1;
+        }
+        return size[0];
+    }
+
+    /**
+     * One player building in a plot of their own, mostly placing blocks and now and then breaking one.
+     */
+    private final class Player {
+        private static final int PLOT_SIZE = 64;
+
+        private final Random random;
+        private final int originX;
+        private int x;
+        private int y = 64;
+        private int z;
+
+        Player(Random random, int index) {
+            this.random = random;
+            this.originX = index * PLOT_SIZE;
+        }
+
+        void act(Store<EntityStore> store) {
+            x = Math.floorMod(x + random.nextInt(3) - 1, PLOT_SIZE);
+            y = Math.clamp(y + random.nextInt(3) - 1, 40, 120);
+            z = Math.floorMod(z + random.nextInt(3) - 1, PLOT_SIZE);
+            Vector3i position = new Vector3i(originX + x, y, z);
+            String block = BenchmarkRepositories.BLOCKS[random.nextInt(BenchmarkRepositories.BLOCKS.length)];
+            if (random.nextInt(4) == 0) {
+                breakTracker.handle(0, archetypeChunk, store, commandBuffer, new BreakBlockEvent(position, new BlockType(block)));
+            } else {
+                ItemStack itemInHand = new ItemStack(new Item(block, block));
+                placeTracker.handle(0, archetypeChunk, store, commandBuffer, new PlaceBlockEvent(itemInHand, position));
+            }
+        }
+    }
+}
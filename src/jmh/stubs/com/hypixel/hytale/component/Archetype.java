@@ -0,0 +1,15 @@
+package com.hypixel.hytale.component;
+
+import com.hypixel.hytale.component.query.Query;
+
+/**
+ * Benchmark stub of an ECS archetype.
+ */
+public class Archetype<T> implements Query<T> {
+    private static final Archetype<?> EMPTY = new Archetype<>();
+
+    @SuppressWarnings("unchecked")
+    public static <T> Archetype<T> empty() {
+        return (Archetype<T>) EMPTY;
+    }
+}
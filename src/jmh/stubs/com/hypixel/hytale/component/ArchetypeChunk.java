@@ -0,0 +1,7 @@
+package com.hypixel.hytale.component;
+
+/**
+ * Benchmark stub of an ECS archetype chunk. The trackers never read it.
+ */
+public class ArchetypeChunk<T> {
+}
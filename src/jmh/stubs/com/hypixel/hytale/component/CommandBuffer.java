@@ -0,0 +1,7 @@
+package com.hypixel.hytale.component;
+
+/**
+ * Benchmark stub of an ECS command buffer. The trackers never write to it.
+ */
+public class CommandBuffer<T> {
+}
@@ -0,0 +1,16 @@
+package com.hypixel.hytale.component;
+
+/**
+ * Benchmark stub of an ECS store, carrying only its external data.
+ */
+public class Store<T> {
+    private final T externalData;
+
+    public Store(T externalData) {
+        this.externalData = externalData;
+    }
+
+    public T getExternalData() {
+        return externalData;
+    }
+}
@@ -0,0 +1,7 @@
+package com.hypixel.hytale.component.query;
+
+/**
+ * Benchmark stub of an ECS query. Nothing is ever matched against it headless.
+ */
+public interface Query<T> {
+}
@@ -0,0 +1,25 @@
+package com.hypixel.hytale.component.system;
+
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+
+/**
+ * Benchmark stub of an ECS event system. Headless, events are passed straight to {@link #handle}.
+ */
+public abstract class EntityEventSystem<S, E> {
+    private final Class<E> eventType;
+
+    protected EntityEventSystem(Class<E> eventType) {
+        this.eventType = eventType;
+    }
+
+    public Class<E> getEventType() {
+        return eventType;
+    }
+
+    public abstract void handle(int index, ArchetypeChunk<S> archetypeChunk, Store<S> store, CommandBuffer<S> commandBuffer, E event);
+
+    public abstract Query<S> getQuery();
+}
@@ -0,0 +1,46 @@
+package com.hypixel.hytale.logger;
+
+/**
+ * Benchmark stub of the server logger. Fine and info messages are dropped so they don't end up in the measurements;
+ * warnings go to stderr, since they mean a benchmark isn't measuring what it should.
+ */
+public class HytaleLogger {
+    private static final Api SILENT = new Api(false);
+    private static final Api STDERR = new Api(true);
+
+    public static HytaleLogger forEnclosingClass() {
+        return new HytaleLogger();
+    }
+
+    public Api atFine() {
+        return SILENT;
+    }
+
+    public Api atInfo() {
+        return SILENT;
+    }
+
+    public Api atWarning() {
+        return STDERR;
+    }
+
+    public static final class Api {
+        private final boolean print;
+
+        private Api(boolean print) {
+            this.print = print;
+        }
+
+        public void log(String message) {
+            if (print) {
+                System.err.println(message);
+            }
+        }
+
+        public void log(String format, Object first, Object second) {
+            if (print) {
+                System.err.println(String.format(format, first, second));
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.hypixel.hytale.math.util;
+
+/**
+ * Benchmark stub of the server's chunk math, with the same 32 block wide columns.
+ */
+public final class ChunkUtil {
+    private static final int CHUNK_BITS = 5;
+
+    private ChunkUtil() {
+    }
+
+    public static long indexChunk(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    public static long indexChunkFromBlock(int x, int z) {
+        return indexChunk(x >> CHUNK_BITS, z >> CHUNK_BITS);
+    }
+}
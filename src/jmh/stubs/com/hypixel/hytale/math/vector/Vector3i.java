@@ -0,0 +1,24 @@
+package com.hypixel.hytale.math.vector;
+
+/**
+ * Benchmark stub of the server's integer vector: just the public fields the repository reads and writes.
+ */
+public class Vector3i {
+    public int x;
+    public int y;
+    public int z;
+
+    public Vector3i() {
+    }
+
+    public Vector3i(int x, int y, int z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    @Override
+    public String toString() {
+        return "Vector3i{x=" + x + ", y=" + y + ", z=" + z + "}";
+    }
+}
@@ -0,0 +1,16 @@
+package com.hypixel.hytale.server.core.asset.type.blocktype.config;
+
+/**
+ * Benchmark stub of a block type, known only by its ID.
+ */
+public class BlockType {
+    private final String id;
+
+    public BlockType(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,22 @@
+package com.hypixel.hytale.server.core.asset.type.item.config;
+
+/**
+ * Benchmark stub of an item that places a block.
+ */
+public class Item {
+    private final String id;
+    private final String blockId;
+
+    public Item(String id, String blockId) {
+        this.id = id;
+        this.blockId = blockId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getBlockId() {
+        return blockId;
+    }
+}
@@ -0,0 +1,25 @@
+package com.hypixel.hytale.server.core.event.events.ecs;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+
+/**
+ * Benchmark stub of the event fired when a player breaks a block.
+ */
+public class BreakBlockEvent {
+    private final Vector3i targetBlock;
+    private final BlockType blockType;
+
+    public BreakBlockEvent(Vector3i targetBlock, BlockType blockType) {
+        this.targetBlock = targetBlock;
+        this.blockType = blockType;
+    }
+
+    public Vector3i getTargetBlock() {
+        return targetBlock;
+    }
+
+    public BlockType getBlockType() {
+        return blockType;
+    }
+}
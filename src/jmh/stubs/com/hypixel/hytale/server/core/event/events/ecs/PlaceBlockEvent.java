@@ -0,0 +1,25 @@
+package com.hypixel.hytale.server.core.event.events.ecs;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.inventory.ItemStack;
+
+/**
+ * Benchmark stub of the event fired when a player places a block.
+ */
+public class PlaceBlockEvent {
+    private final ItemStack itemInHand;
+    private final Vector3i targetBlock;
+
+    public PlaceBlockEvent(ItemStack itemInHand, Vector3i targetBlock) {
+        this.itemInHand = itemInHand;
+        this.targetBlock = targetBlock;
+    }
+
+    public ItemStack getItemInHand() {
+        return itemInHand;
+    }
+
+    public Vector3i getTargetBlock() {
+        return targetBlock;
+    }
+}
@@ -0,0 +1,22 @@
+package com.hypixel.hytale.server.core.inventory;
+
+import com.hypixel.hytale.server.core.asset.type.item.config.Item;
+
+/**
+ * Benchmark stub of a stack of items.
+ */
+public class ItemStack {
+    private final Item item;
+
+    public ItemStack(Item item) {
+        this.item = item;
+    }
+
+    public Item getItem() {
+        return item;
+    }
+
+    public String getItemId() {
+        return item.getId();
+    }
+}
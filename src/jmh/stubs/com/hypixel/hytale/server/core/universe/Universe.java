@@ -0,0 +1,28 @@
+package com.hypixel.hytale.server.core.universe;
+
+import com.hypixel.hytale.server.core.universe.world.World;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Benchmark stub of the server universe. Worlds are created in memory the first time they are asked for.
+ */
+public class Universe {
+    private static final String DEFAULT_WORLD = "default";
+    private static final Universe INSTANCE = new Universe();
+
+    private final Map<String, World> worlds = new ConcurrentHashMap<>();
+
+    public static Universe get() {
+        return INSTANCE;
+    }
+
+    public World getDefaultWorld() {
+        return getWorld(DEFAULT_WORLD);
+    }
+
+    public World getWorld(String name) {
+        return worlds.computeIfAbsent(name, World::new);
+    }
+}
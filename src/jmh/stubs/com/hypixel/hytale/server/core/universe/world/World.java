@@ -0,0 +1,36 @@
+package com.hypixel.hytale.server.core.universe.world;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Benchmark stub of a world: chunks are plain in-memory maps, created the first time they are written to.
+ * Not thread safe, like the real world outside its own tick.
+ */
+public class World {
+    private final String name;
+    private final Map<Long, WorldChunk> chunks = new HashMap<>();
+
+    public World(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public WorldChunk getChunk(long chunkIndex) {
+        return chunks.computeIfAbsent(chunkIndex, index -> new WorldChunk());
+    }
+
+    public void setBlock(int x, int y, int z, String blockId) {
+        getChunk(ChunkUtil.indexChunkFromBlock(x, z)).setBlock(x, y, z, blockId);
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+}
@@ -0,0 +1,28 @@
+package com.hypixel.hytale.server.core.universe.world.chunk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Benchmark stub of a chunk, keeping its blocks in a map keyed by packed position.
+ */
+public class WorldChunk {
+    private final Map<Long, String> blocks = new HashMap<>();
+    private boolean needsSaving;
+
+    public void setBlock(int x, int y, int z, String blockId) {
+        blocks.put(((long) x << 38) ^ ((long) y << 26) ^ (z & 0x3FFFFFFL), blockId);
+    }
+
+    public void markNeedsSaving() {
+        needsSaving = true;
+    }
+
+    public boolean getNeedsSaving() {
+        return needsSaving;
+    }
+
+    public int getBlockCount() {
+        return blocks.size();
+    }
+}
@@ -0,0 +1,18 @@
+package com.hypixel.hytale.server.core.universe.world.storage;
+
+import com.hypixel.hytale.server.core.universe.world.World;
+
+/**
+ * Benchmark stub of a world's entity store, the external data the trackers find their world through.
+ */
+public class EntityStore {
+    private final World world;
+
+    public EntityStore(World world) {
+        this.world = world;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+}
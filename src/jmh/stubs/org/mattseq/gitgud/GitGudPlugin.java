@@ -0,0 +1,13 @@
+package org.mattseq.gitgud;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+
+/**
+ * Stand-in for the plugin entrypoint in the benchmarks, which only need its logger.
+ */
+public final class GitGudPlugin {
+    public static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private GitGudPlugin() {
+    }
+}
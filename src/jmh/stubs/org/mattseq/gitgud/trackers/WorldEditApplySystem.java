@@ -0,0 +1,74 @@
+package org.mattseq.gitgud.trackers;
+
+import com.hypixel.hytale.server.core.universe.world.World;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Stand-in for the apply system in the benchmarks. Batches are queued per world exactly like the real one, but
+ * instead of a server tick draining them under a budget, {@link #applyAll} writes everything queued for a world at
+ * once.
+ */
+public final class WorldEditApplySystem {
+    private static final Map<String, Queue<ApplyBatch>> pendingBatches = new ConcurrentHashMap<>();
+
+    private WorldEditApplySystem() {
+    }
+
+    public static void submit(String worldName, ApplyBatch batch) {
+        if (batch.size() == 0) {
+            batch.complete();
+            return;
+        }
+        batch.sortByChunk();
+        pendingBatches.computeIfAbsent(worldName, name -> new ConcurrentLinkedQueue<>()).add(batch);
+    }
+
+    public static List<ApplyBatch> getPendingBatches(String worldName) {
+        Queue<ApplyBatch> queue = pendingBatches.get(worldName);
+        return queue == null ? new ArrayList<>() : new ArrayList<>(queue);
+    }
+
+    public static long getPendingEditCount() {
+        long count = 0;
+        for (Queue<ApplyBatch> queue : pendingBatches.values()) {
+            for (ApplyBatch batch : queue) {
+                count += batch.getRemaining();
+            }
+        }
+        return count;
+    }
+
+    public static long getPendingBatchCount() {
+        long count = 0;
+        for (Queue<ApplyBatch> queue : pendingBatches.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * Writes every batch queued for the world into it, and returns the number of edits written.
+     */
+    public static int applyAll(World world) {
+        Queue<ApplyBatch> queue = pendingBatches.get(world.getName());
+        if (queue == null) {
+            return 0;
+        }
+        int applied = 0;
+        ApplyBatch batch;
+        while ((batch = queue.poll()) != null) {
+            if (!batch.isCancelled()) {
+                applied += batch.applyTo(world, batch.getRemaining(), Long.MAX_VALUE);
+                batch.notifyProgress();
+            }
+            batch.complete();
+        }
+        return applied;
+    }
+}
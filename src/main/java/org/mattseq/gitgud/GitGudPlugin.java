@@ -36,6 +36,6 @@ public class GitGudPlugin extends JavaPlugin {
     @Override
     protected void shutdown() {
         LOGGER.atInfo().log("Shutting down plugin " + this.getName());
-        Repository.stashBlockChanges();
+        Repository.shutdown();
     }
 }
\ No newline at end of file
@@ -2,64 +2,244 @@ package org.mattseq.gitgud;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import org.mattseq.gitgud.dto.BlameEntry;
 import org.mattseq.gitgud.dto.BlockChange;
 import org.mattseq.gitgud.dto.Commit;
+import org.mattseq.gitgud.dto.CommitInfo;
+import org.mattseq.gitgud.dto.Config;
+import org.mattseq.gitgud.dto.Region;
+import org.mattseq.gitgud.dto.RegionHistoryEntry;
 import org.mattseq.gitgud.dto.Stash;
 import org.mattseq.gitgud.dto.Tag;
+import org.mattseq.gitgud.metrics.LatencyHistogram;
+import org.mattseq.gitgud.metrics.Metrics;
+import org.mattseq.gitgud.storage.BlockPalette;
+import org.mattseq.gitgud.storage.ChangeBuffer;
+import org.mattseq.gitgud.storage.ChangeJournal;
+import org.mattseq.gitgud.storage.CommitCache;
+import org.mattseq.gitgud.storage.CommitCodec;
+import org.mattseq.gitgud.storage.CommitIndex;
+import org.mattseq.gitgud.storage.Compression;
+import org.mattseq.gitgud.storage.KeyframeStore;
+import org.mattseq.gitgud.storage.PackStore;
+import org.mattseq.gitgud.storage.PositionKeys;
+import org.mattseq.gitgud.storage.RefStore;
+import org.mattseq.gitgud.storage.RepositoryStats;
+import org.mattseq.gitgud.storage.SpatialIndex;
+import org.mattseq.gitgud.storage.WorkingSet;
+import org.mattseq.gitgud.trackers.ApplyBatch;
 import org.mattseq.gitgud.trackers.WorldEditApplySystem;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+/**
+ * The history of one world: its uncommitted changes and journal, commits, indexes, keyframes and refs, stored under
+ * {@code .gitgud/worlds/<world>}. Each world gets its own instance, opened in the background the first time it is
+ * used, so edits, commits and checkouts in one world never share state or locks with another. The config, block
+ * palette, compression dictionaries and commit cache are shared by every world.
+ */
 public class Repository {
     private static final Path REPO_PATH = Path.of(".gitgud");
-    private static final Path COMMITS_PATH = REPO_PATH.resolve("commits");
-    private static final Path STASH_PATH = REPO_PATH.resolve("stash");
-    private static final Path HEAD_PATH = REPO_PATH.resolve("HEAD");
-    private static final Path CURRENT_PATH = REPO_PATH.resolve("CURRENT");
-    private static final Path TAGS_PATH = REPO_PATH.resolve("tags");
-
-    // TODO: consider using a more efficient data structure like a TreeSet
-    private static final ArrayList<BlockChange> blockChanges = new ArrayList<>();
+    private static final Path WORLDS_PATH = REPO_PATH.resolve("worlds");
+    private static final Path CONFIG_PATH = REPO_PATH.resolve("config.json");
+    private static final Path PALETTE_PATH = REPO_PATH.resolve("palette");
+    private static final Path DICTIONARIES_PATH = REPO_PATH.resolve("dictionaries");
+    private static final Path METRICS_PATH = REPO_PATH.resolve("metrics.json");
+    // what a single-world repository kept directly in .gitgud before worlds had their own folders
+    private static final List<String> LEGACY_ENTRIES = List.of("commits", "stash", "HEAD", "CURRENT", "tags", "index",
+            "journal", "keyframes", "spatial", "packs", "reflog", "stats");
+
+    // commits and stashes from before the binary format store block IDs as strings
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(BlockChange.class, (JsonDeserializer<BlockChange>) Repository::deserializeBlockChange)
+            .registerTypeAdapter(ChangeBuffer.class, (JsonDeserializer<ChangeBuffer>) Repository::deserializeChangeBuffer)
+            .create();
+    private static final Gson PRETTY_GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private static Config config = new Config();
+
+    // world name -> its repository, filled as worlds finish opening
+    private static final Map<String, Repository> repositories = new ConcurrentHashMap<>();
+    // world name -> its opening, kept after it finishes so a world is only ever opened once
+    private static final Map<String, Opening> openings = new ConcurrentHashMap<>();
+    // decoded commits of every world, so the configured limit holds for the whole server
+    private static final CommitCache commitCache = new CommitCache(config.commitCacheMaxChanges);
+
+    private static final ExecutorService journalWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gitgud-journal-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // repositories are opened here, so the first event in a world never loads its indexes on the game thread
+    private static final ExecutorService repositoryOpener = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gitgud-repository-opener");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // keyframes and packs are written here, one job at a time, away from the game thread
+    private static final ExecutorService maintenanceWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gitgud-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // decodes commits for history-wide operations (checkout, keyframes, index rebuilds) on every core
+    private static final int LOADER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final ForkJoinPool commitLoader = new ForkJoinPool(LOADER_THREADS, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("gitgud-commit-loader-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+
+    private static final LongAdder changesTracked = Metrics.counter("tracking.changes");
+    private static final LatencyHistogram addBlockChangeLatency = Metrics.latency("tracking.addBlockChange");
+    private static final LongAdder journalBytesWritten = Metrics.counter("journal.bytesWritten");
+    private static final LatencyHistogram journalAppendLatency = Metrics.latency("journal.append");
+    private static final LatencyHistogram journalCheckpointLatency = Metrics.latency("journal.checkpoint");
+    private static final LongAdder commitsWritten = Metrics.counter("commit.written");
+    private static final LongAdder commitBytesWritten = Metrics.counter("commit.bytesWritten");
+    private static final LatencyHistogram commitSaveLatency = Metrics.latency("commit.save");
+    private static final LatencyHistogram commitWriteLatency = Metrics.latency("commit.write");
+    private static final LatencyHistogram checkoutLatency = Metrics.latency("checkout.plan");
+
+    private final String worldName;
+    private final Path repoPath;
+    private final Path commitsPath;
+    private final Path stashPath;
+    private final Path journalPath;
+    private final Path keyframesPath;
+    private final Path packsPath;
+
+    private final WorkingSet blockChanges = new WorkingSet();
+    private final ChangeJournal journal;
+
+    // held while changes move between memory, the journal and commits, so a background journal write never races a commit
+    private final Object journalLock = new Object();
+    // only one background journal write is queued at a time; tracking keeps filling memory until it finishes
+    private final AtomicBoolean journalWriteQueued = new AtomicBoolean();
+
+    // held by operations that replay a range of commits, by commits, and by gc while it swaps a run of commits for their
+    // squash or recounts stats, so neither a replay nor a commit ever sees half of a swap; taken before journalLock
+    private final Object historyLock = new Object();
+    private final AtomicInteger commitsSinceGc = new AtomicInteger();
+
+    private final RefStore refs;
+    private final CommitIndex commitIndex;
+    private final RepositoryStats stats;
+    private final PackStore packs;
+    private final KeyframeStore keyframes;
+    private final SpatialIndex spatialIndex;
+
+    private Repository(String worldName, Path repoPath) {
+        this.worldName = worldName;
+        this.repoPath = repoPath;
+        this.commitsPath = repoPath.resolve("commits");
+        this.stashPath = repoPath.resolve("stash");
+        this.journalPath = repoPath.resolve("journal");
+        this.keyframesPath = repoPath.resolve("keyframes");
+        this.packsPath = repoPath.resolve("packs");
+        this.journal = new ChangeJournal(journalPath, config.journalSegmentBytes);
+        this.refs = new RefStore(repoPath.resolve("HEAD"), repoPath.resolve("CURRENT"), repoPath.resolve("tags"), repoPath.resolve("reflog"));
+        this.commitIndex = new CommitIndex(repoPath.resolve("index"));
+        this.stats = new RepositoryStats(repoPath.resolve("stats"));
+        this.packs = new PackStore(packsPath);
+        this.keyframes = new KeyframeStore(keyframesPath);
+        this.spatialIndex = new SpatialIndex(repoPath.resolve("spatial"));
+    }
 
     public static final class ActionResult {
         public final boolean success;
         public final String message;
+        // world edits queued by the action, or null if it did not touch the world
+        public final ApplyBatch batch;
 
-        private ActionResult(boolean success, String message) {
+        private ActionResult(boolean success, String message, ApplyBatch batch) {
             this.success = success;
             this.message = message;
+            this.batch = batch;
         }
 
         public static ActionResult success(String message) {
-            return new ActionResult(true, message);
+            return new ActionResult(true, message, null);
+        }
+
+        public static ActionResult success(String message, ApplyBatch batch) {
+            return new ActionResult(true, message, batch);
         }
 
         public static ActionResult failure(String message) {
-            return new ActionResult(false, message);
+            return new ActionResult(false, message, null);
         }
     }
 
-    public static ArrayList<BlockChange> getBlockChanges() {
-        synchronized (blockChanges) {
-            return new ArrayList<>(blockChanges);
-        }
+    public ChangeBuffer getBlockChanges() {
+        return blockChanges.snapshot();
     }
 
-    public static void addBlockChange(BlockChange change, boolean stashIfNeeded) {
+    /**
+     * Records a block change. This is called from event handlers on the game thread, so it only touches memory; when
+     * enough changes have piled up, writing them to the journal is handed to the background writer.
+     */
+    public void addBlockChange(BlockChange change, boolean flushIfNeeded) {
+        long start = System.nanoTime();
         blockChanges.add(change);
-        if (stashIfNeeded && blockChanges.size() > 32) {
-            GitGudPlugin.LOGGER.atWarning().log("Block change count exceeded 32, stashing changes.");
-            stashBlockChanges();
+        if (flushIfNeeded && blockChanges.unjournaledCount() >= config.journalFlushChanges && journalWriteQueued.compareAndSet(false, true)) {
+            try {
+                journalWriter.execute(() -> {
+                    try {
+                        flushJournal();
+                    } finally {
+                        journalWriteQueued.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // shutting down, the final flush picks these up
+                journalWriteQueued.set(false);
+            }
         }
+        changesTracked.increment();
+        addBlockChangeLatency.recordSince(start);
     }
 
+    /**
+     * Creates {@code .gitgud} and loads what every world shares: the config and the block palette. Each world's own
+     * repository is opened later, by {@link #forWorld}.
+     */
     public static void initialize() {
         if (!Files.exists(REPO_PATH)) {
             try {
@@ -70,264 +250,1044 @@ public class Repository {
             }
         }
 
-        if (!Files.exists(COMMITS_PATH)) {
-            try {
-                Files.createDirectory(COMMITS_PATH);
-                GitGudPlugin.LOGGER.atInfo().log("Created commits directory at " + COMMITS_PATH.toAbsolutePath());
-            } catch (IOException e) {
-                GitGudPlugin.LOGGER.atWarning().log("Failed to create commits directory: " + e.getMessage());
-            }
+        loadConfig();
+        commitCache.setMaxChanges(config.commitCacheMaxChanges);
+        try {
+            BlockPalette.load(PALETTE_PATH);
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to load block palette: " + e.getMessage());
         }
+        // checked once the palette is loaded, since the dictionary codec is built from it
+        try {
+            Compression.parse(config.compression, config.compressionLevel);
+        } catch (IOException | IllegalArgumentException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Invalid compression settings, using " + Compression.DEFAULT.describe() + ": " + e.getMessage());
+        }
+        registerGauges();
+        Metrics.startWriting(METRICS_PATH, config.metricsWriteSeconds);
+    }
 
-        if (!Files.exists(STASH_PATH)) {
-            try {
-                Files.createDirectory(STASH_PATH);
-                GitGudPlugin.LOGGER.atInfo().log("Created stash directory at " + STASH_PATH.toAbsolutePath());
-            } catch (IOException e) {
-                GitGudPlugin.LOGGER.atWarning().log("Failed to create stash directory: " + e.getMessage());
-            }
+    // totals over every open world, read only when a metrics report is taken
+    private static void registerGauges() {
+        Metrics.gauge("repository.worlds", repositories::size);
+        Metrics.gauge("repository.uncommittedChanges", () -> sum(Repository::getUncommittedChangeCount));
+        Metrics.gauge("repository.unjournaledChanges", () -> sum(Repository::getUnjournaledChangeCount));
+        Metrics.gauge("repository.commits", () -> sum(Repository::getCommitCount));
+        Metrics.gauge("repository.commitBytes", () -> sum(Repository::getCommitStorageBytes));
+        Metrics.gauge("journal.bytes", () -> sum(Repository::getJournalSizeBytes));
+        Metrics.gauge("apply.pendingEdits", WorldEditApplySystem::getPendingEditCount);
+        Metrics.gauge("apply.pendingBatches", WorldEditApplySystem::getPendingBatchCount);
+        Metrics.gauge("jvm.heapUsedBytes", () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+    }
+
+    private static long sum(ToLongFunction<Repository> value) {
+        long total = 0;
+        for (Repository repository : repositories.values()) {
+            total += value.applyAsLong(repository);
         }
+        return total;
+    }
 
-        if (!Files.exists(HEAD_PATH)) {
-            try {
-                Files.createFile(HEAD_PATH);
-                Files.writeString(HEAD_PATH, "0");
-                GitGudPlugin.LOGGER.atInfo().log("Created HEAD file at " + HEAD_PATH.toAbsolutePath());
-            } catch (IOException e) {
-                GitGudPlugin.LOGGER.atWarning().log("Failed to create HEAD file: " + e.getMessage());
-            }
+    /**
+     * The repository of the given world, waiting for it to open if this is its first use. Opening can migrate an old
+     * repository and rebuild indexes, so event handlers use {@link #trackBlockChange} instead.
+     */
+    public static Repository forWorld(World world) {
+        return forWorld(world.getName());
+    }
+
+    public static Repository forWorld(String worldName) {
+        Repository repository = repositories.get(worldName);
+        if (repository != null) {
+            return repository;
         }
+        return startOpening(worldName).opened.join();
+    }
 
-        if (!Files.exists(CURRENT_PATH)) {
-            try {
-                Files.createFile(CURRENT_PATH);
-                Files.writeString(CURRENT_PATH, String.valueOf(getHeadTimestamp()));
-                GitGudPlugin.LOGGER.atInfo().log("Created CURRENT file at " + CURRENT_PATH.toAbsolutePath());
-            } catch (IOException e) {
-                GitGudPlugin.LOGGER.atWarning().log("Failed to create CURRENT file: " + e.getMessage());
+    /**
+     * Records a block change made in the given world, from the game thread. If the world's repository is not open yet,
+     * opening it is started in the background and the change is held until it finishes, then added in order with any
+     * others that arrived meanwhile.
+     */
+    public static void trackBlockChange(World world, BlockChange change) {
+        Repository repository = repositories.get(world.getName());
+        if (repository == null) {
+            Opening opening = startOpening(world.getName());
+            synchronized (opening) {
+                if (opening.repository == null) {
+                    opening.heldChanges.add(change);
+                    return;
+                }
+                repository = opening.repository;
             }
         }
+        repository.addBlockChange(change, true);
+    }
 
-        if (!Files.exists(TAGS_PATH)) {
-            try {
-                Files.createDirectory(TAGS_PATH);
-                GitGudPlugin.LOGGER.atInfo().log("Created tags directory at " + TAGS_PATH.toAbsolutePath());
-            } catch (IOException e) {
-                GitGudPlugin.LOGGER.atWarning().log("Failed to create tags directory: " + e.getMessage());
-            }
+    private static Opening startOpening(String worldName) {
+        Opening opening = openings.get(worldName);
+        if (opening != null) {
+            return opening;
+        }
+        Opening created = new Opening();
+        opening = openings.putIfAbsent(worldName, created);
+        if (opening != null) {
+            return opening;
         }
+        try {
+            repositoryOpener.execute(() -> finishOpening(worldName, created));
+        } catch (RejectedExecutionException e) {
+            // shutting down, so there is no background thread left to wait for
+            finishOpening(worldName, created);
+        }
+        return created;
     }
 
-    public static ActionResult saveCommit(String message) {
-        if (isDetached()) {
-            String failureMessage = "Cannot commit while detached. Checkout HEAD first so HEAD == CURRENT.";
-            GitGudPlugin.LOGGER.atWarning().log(failureMessage);
-            return ActionResult.failure(failureMessage);
+    private static void finishOpening(String worldName, Opening opening) {
+        Repository repository = new Repository(worldName, WORLDS_PATH.resolve(directoryName(worldName)));
+        try {
+            repository.open();
+        } catch (RuntimeException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to open repository for world " + worldName + ", "
+                    + opening.heldChanges.size() + " tracked changes were dropped: " + e.getMessage());
+            // the next use tries again
+            openings.remove(worldName, opening);
+            opening.opened.completeExceptionally(e);
+            return;
         }
+        synchronized (opening) {
+            for (BlockChange change : opening.heldChanges) {
+                repository.addBlockChange(change, true);
+            }
+            opening.heldChanges.clear();
+            opening.repository = repository;
+        }
+        repositories.put(worldName, repository);
+        opening.opened.complete(repository);
+    }
 
-        long timestamp = System.currentTimeMillis();
+    private static final class Opening {
+        final CompletableFuture<Repository> opened = new CompletableFuture<>();
+        // changes tracked while the repository was opening, guarded by the opening itself
+        final List<BlockChange> heldChanges = new ArrayList<>();
+        Repository repository;
+    }
+
+    /**
+     * The repositories opened so far.
+     */
+    public static Collection<Repository> openRepositories() {
+        return new ArrayList<>(repositories.values());
+    }
 
-        Path commitFile = COMMITS_PATH.resolve(timestamp + ".json.gz");
+    // world names become folder names, so anything a file system might not accept is replaced
+    private static String directoryName(String worldName) {
+        String name = worldName.replaceAll("[^A-Za-z0-9._-]", "_");
+        return name.isEmpty() || name.chars().allMatch(c -> c == '.') ? "_" + name : name;
+    }
 
-        unstashBlockChanges();
+    public String getWorldName() {
+        return worldName;
+    }
 
-        ArrayList<BlockChange> changesToSave = getBlockChanges();
-        if (changesToSave.isEmpty()) {
-            String noChangesMessage = "No changes to commit.";
-            GitGudPlugin.LOGGER.atInfo().log(noChangesMessage);
-            return ActionResult.failure(noChangesMessage);
+    private void open() {
+        migrateLegacyLayout();
+        for (Path directory : List.of(commitsPath, packsPath, keyframesPath, journalPath)) {
+            if (!Files.exists(directory)) {
+                try {
+                    Files.createDirectories(directory);
+                    GitGudPlugin.LOGGER.atInfo().log("Created " + directory.getFileName() + " directory at " + directory.toAbsolutePath());
+                } catch (IOException e) {
+                    GitGudPlugin.LOGGER.atWarning().log("Failed to create " + directory.getFileName() + " directory: " + e.getMessage());
+                }
+            }
         }
 
         try {
-            // sort block changes by timestamp
-            changesToSave.sort(Comparator.comparingLong(a -> a.timestamp));
-
-            // save commit
-            String commitJson = serializeJson(new Commit(message, changesToSave, timestamp, getLastCommitTimestamp()));
-            byte[] compressedData = gzipCompress(commitJson.getBytes());
-            Files.write(commitFile, compressedData);
-            setHead(timestamp);
-            setCurrent(timestamp);
+            refs.load();
         } catch (IOException e) {
-            GitGudPlugin.LOGGER.atWarning().log("Failed to save commit: " + e.getMessage());
-            return ActionResult.failure("Failed to save commit. Check logs for details.");
+            GitGudPlugin.LOGGER.atWarning().log("Failed to load HEAD, CURRENT and tags: " + e.getMessage());
         }
 
-        blockChanges.removeAll(changesToSave);
-        String successMessage = "Commit saved with message: " + message;
-        GitGudPlugin.LOGGER.atInfo().log(successMessage);
-        return ActionResult.success(successMessage);
+        blockChanges.setKeepEveryChange(config.keepEveryChange);
+        journal.setSegmentBytes(config.journalSegmentBytes);
+        try {
+            packs.load();
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to load packs: " + e.getMessage());
+        }
+        loadCommitIndex();
+        loadStats();
+        loadSpatialIndex();
+        recoverJournal();
+        try {
+            keyframes.load();
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to load keyframes: " + e.getMessage());
+        }
+        GitGudPlugin.LOGGER.atInfo().log("Opened repository for world " + worldName + " at " + repoPath.toAbsolutePath());
     }
 
-    public static void revertCommit(Commit commit) {
-        if (commit == null) {
-            GitGudPlugin.LOGGER.atInfo().log("No commit found to revert.");
+    /**
+     * Moves a repository from before worlds had their own folders into the default world's folder, since that is the
+     * only world it could have tracked.
+     */
+    private void migrateLegacyLayout() {
+        World defaultWorld = Universe.get().getDefaultWorld();
+        if (defaultWorld == null || !defaultWorld.getName().equals(worldName) || Files.exists(repoPath)
+                || !Files.exists(REPO_PATH.resolve("HEAD"))) {
             return;
         }
+        try {
+            Files.createDirectories(repoPath);
+            for (String entry : LEGACY_ENTRIES) {
+                Path legacyPath = REPO_PATH.resolve(entry);
+                if (Files.exists(legacyPath)) {
+                    Files.move(legacyPath, repoPath.resolve(entry));
+                }
+            }
+            GitGudPlugin.LOGGER.atInfo().log("Moved the existing repository into " + repoPath.toAbsolutePath());
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to move the existing repository into " + repoPath + ": " + e.getMessage());
+        }
+    }
 
-        applyCommitBackward(commit);
+    public static Config getConfig() {
+        return config;
+    }
 
-        setCurrent(commit.parentCommit);
-        GitGudPlugin.LOGGER.atInfo().log("Reverted commit " + commit.timestamp + " without deleting commit file.");
+    private static void loadConfig() {
+        try {
+            if (Files.exists(CONFIG_PATH)) {
+                Config loaded = deserializeJson(Files.readString(CONFIG_PATH), Config.class);
+                if (loaded != null) {
+                    config = loaded;
+                }
+            }
+            // write back so newly added options show up with their defaults
+            Files.writeString(CONFIG_PATH, serializeJson(config));
+        } catch (IOException | RuntimeException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to load config, using defaults: " + e.getMessage());
+        }
+        Compression.setDictionariesPath(DICTIONARIES_PATH);
     }
 
-    public static void applyCommit(Commit commit) {
-        if (commit == null) {
-            GitGudPlugin.LOGGER.atInfo().log("No commit found to apply.");
+    /**
+     * The codec new commit files are written with, from the config. The dictionary codec picks up a new dictionary
+     * whenever the palette has grown.
+     */
+    private static Compression commitCompression() {
+        try {
+            return Compression.parse(config.compression, config.compressionLevel);
+        } catch (IOException | IllegalArgumentException e) {
+            return Compression.DEFAULT;
+        }
+    }
+
+    private void loadCommitIndex() {
+        long headTimestamp = getHeadTimestamp();
+        if (commitIndex.load() && (headTimestamp == 0 || commitIndex.contains(headTimestamp))) {
             return;
         }
 
-        applyCommitForward(commit);
+        GitGudPlugin.LOGGER.atInfo().log("Commit index missing or stale, rebuilding from " + commitsPath.toAbsolutePath());
+        List<CommitInfo> commits = new ArrayList<>();
+        try (Stream<Path> files = Files.list(commitsPath)) {
+            for (Path file : files.toList()) {
+                String fileName = file.getFileName().toString();
+                CommitInfo info = null;
+                if (fileName.endsWith(CommitCodec.COMMIT_EXTENSION)) {
+                    info = CommitCodec.readCommitInfo(file);
+                } else if (fileName.endsWith(CommitCodec.LEGACY_EXTENSION)) {
+                    Commit commit = deserializeJson(new String(gzipDecompress(Files.readAllBytes(file))), Commit.class);
+                    info = new CommitInfo(commit.message, commit.timestamp, commit.parentCommit, commit.blockChanges.size());
+                }
+                if (info != null && !packs.contains(info.timestamp)) {
+                    commits.add(info);
+                }
+            }
+            for (long packedTimestamp : packs.timestamps()) {
+                commits.add(CommitCodec.readCommitInfo(packs.open(packedTimestamp), "packed commit " + packedTimestamp));
+            }
+            commits.sort(Comparator.comparingLong(info -> info.timestamp));
+            commitIndex.rebuild(commits);
+            GitGudPlugin.LOGGER.atInfo().log("Rebuilt commit index with " + commits.size() + " commits.");
+        } catch (IOException | RuntimeException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to rebuild commit index: " + e.getMessage());
+        }
+    }
+
+    private void loadStats() {
+        if (stats.load() && stats.getCommitCount() == commitIndex.size()) {
+            return;
+        }
+        try {
+            stats.reset(commitIndex.size(), commitIndex.totalChangeCount(), commitStorageBytes());
+            GitGudPlugin.LOGGER.atInfo().log("Recounted repository stats: " + stats.getCommitCount() + " commits.");
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to save repository stats: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Total size of loose commit files and packs, found by listing the commits directory.
+     */
+    private long commitStorageBytes() throws IOException {
+        long bytes = packs.sizeBytes();
+        try (Stream<Path> files = Files.list(commitsPath)) {
+            for (Path file : files.toList()) {
+                if (looseCommitTimestamp(file) > 0) {
+                    bytes += Files.size(file);
+                }
+            }
+        }
+        return bytes;
+    }
 
-        setCurrent(commit.timestamp);
-        GitGudPlugin.LOGGER.atInfo().log("Applied commit " + commit.timestamp + ".");
+    private void loadSpatialIndex() {
+        long headTimestamp = getHeadTimestamp();
+        if (spatialIndex.load() && spatialIndex.size() == commitIndex.size()
+                && (headTimestamp == 0 || spatialIndex.contains(headTimestamp))) {
+            return;
+        }
+
+        GitGudPlugin.LOGGER.atInfo().log("Spatial index missing or stale, rebuilding from " + commitsPath.toAbsolutePath());
+        try {
+            spatialIndex.reset();
+            int[] indexed = {0};
+            // read straight from disk so a full rebuild doesn't churn the commit cache; a missing commit is skipped
+            loadInOrder(timestamps(getCommitInfoHistory().reversed()), timestamp -> Optional.ofNullable(readCommitFile(timestamp)), commit -> {
+                if (commit.isPresent()) {
+                    spatialIndex.add(commit.get().timestamp, commit.get().blockChanges);
+                    indexed[0]++;
+                }
+            });
+            GitGudPlugin.LOGGER.atInfo().log("Rebuilt spatial index with " + indexed[0] + " commits.");
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to rebuild spatial index: " + e.getMessage());
+        }
     }
 
-    public static ActionResult revertLatestCommit() {
+    public ActionResult saveCommit(String message) {
         if (isDetached()) {
-            String failureMessage = "Cannot revert while detached. Checkout HEAD first so HEAD == CURRENT.";
+            String failureMessage = "Cannot commit while detached. Checkout HEAD first so HEAD == CURRENT.";
             GitGudPlugin.LOGGER.atWarning().log(failureMessage);
             return ActionResult.failure(failureMessage);
         }
 
-        // rollback any uncommitted changes first
-        rollback();
+        synchronized (historyLock) {
+            synchronized (journalLock) {
+                long start = System.nanoTime();
+                long timestamp = System.currentTimeMillis();
+
+                Path commitFile = commitsPath.resolve(timestamp + CommitCodec.COMMIT_EXTENSION);
 
-        long lastCommitTimestamp = getCurrentTimestamp();
+                ChangeBuffer changesToSave = getBlockChanges();
+                if (changesToSave.isEmpty()) {
+                    String noChangesMessage = "No changes to commit.";
+                    GitGudPlugin.LOGGER.atInfo().log(noChangesMessage);
+                    return ActionResult.failure(noChangesMessage);
+                }
 
-        Commit lastCommit = getCommitByTimestamp(lastCommitTimestamp);
+                try {
+                    // sort block changes by timestamp
+                    changesToSave.sortByTimestamp();
+
+                    // save commit
+                    Commit commit = new Commit(message, changesToSave, timestamp, getLastCommitTimestamp());
+                    long writeStart = System.nanoTime();
+                    CommitCodec.writeCommit(commitFile, commit, commitCompression());
+                    commitWriteLatency.recordSince(writeStart);
+                    commitIndex.add(new CommitInfo(message, timestamp, commit.parentCommit, changesToSave.size()));
+                    commitCache.put(worldName, commit);
+                    refs.update(timestamp, timestamp, "commit: " + message);
+                } catch (IOException e) {
+                    GitGudPlugin.LOGGER.atWarning().log("Failed to save commit: " + e.getMessage());
+                    return ActionResult.failure("Failed to save commit. Check logs for details.");
+                }
 
-        if (lastCommit != null) {
-            revertCommit(lastCommit);
-            // delete commit file after reverting
-            Path commitFile = COMMITS_PATH.resolve(lastCommit.timestamp + ".json.gz");
-            setHead(lastCommit.parentCommit);
-            try {
-                Files.deleteIfExists(commitFile);
-                GitGudPlugin.LOGGER.atInfo().log("Deleted commit file for timestamp: " + lastCommit.timestamp);
-            } catch (IOException e) {
-                GitGudPlugin.LOGGER.atWarning().log("Failed to delete commit file: " + e.getMessage());
+                try {
+                    long bytes = Files.size(commitFile);
+                    commitsWritten.increment();
+                    commitBytesWritten.add(bytes);
+                    stats.commitAdded(changesToSave.size(), bytes);
+                } catch (IOException e) {
+                    // recounted on the next start, since the commit count no longer matches the index
+                    GitGudPlugin.LOGGER.atWarning().log("Failed to update repository stats: " + e.getMessage());
+                }
+
+                try {
+                    spatialIndex.add(timestamp, changesToSave);
+                } catch (IOException e) {
+                    // the commit itself is safe; the index no longer matches and is rebuilt on the next start
+                    GitGudPlugin.LOGGER.atWarning().log("Failed to update spatial index: " + e.getMessage());
+                }
+
+                blockChanges.removeCommitted(changesToSave);
+                // the committed changes no longer need replaying, only whatever happened since the snapshot
+                checkpointJournal();
+                scheduleKeyframeIfDue();
+                scheduleGcIfDue();
+                commitSaveLatency.recordSince(start);
+                String successMessage = "Commit saved with message: " + message;
+                GitGudPlugin.LOGGER.atInfo().log(successMessage);
+                return ActionResult.success(successMessage);
             }
-            return ActionResult.success("Reverted commit " + lastCommit.timestamp + ".");
-        } else {
-            String noCommitMessage = "No commits found to revert.";
-            GitGudPlugin.LOGGER.atInfo().log(noCommitMessage);
-            return ActionResult.failure(noCommitMessage);
         }
     }
 
-    public static ActionResult checkoutCommit(int targetIndex) {
-        Map<Long, Commit> commitHistory = getCommitHistoryMap();
-        if (targetIndex < 0 || targetIndex >= commitHistory.size()) {
+    /**
+     * Deletes a file if it exists and returns how many bytes it held.
+     */
+    private static long deleteLooseFile(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long size = Files.size(file);
+        Files.deleteIfExists(file);
+        return size;
+    }
+
+    /**
+     * Queues the undo of a commit in the world. The commit is streamed into the batch newest change first, a block at a
+     * time, instead of being decoded whole. Returns null if the commit cannot be read.
+     */
+    private ApplyBatch submitRevert(CommitInfo commit) {
+        ApplyBatch batch = new ApplyBatch("revert " + commit.timestamp);
+        if (!streamCommitReversed(commit.timestamp, (x, y, z, oldBlock, newBlock, timestamp) -> batch.add(x, y, z, oldBlock))) {
+            return null;
+        }
+        WorldEditApplySystem.submit(worldName, batch);
+        return batch;
+    }
+
+    public ActionResult revertLatestCommit() {
+        synchronized (historyLock) {
+            if (isDetached()) {
+                String failureMessage = "Cannot revert while detached. Checkout HEAD first so HEAD == CURRENT.";
+                GitGudPlugin.LOGGER.atWarning().log(failureMessage);
+                return ActionResult.failure(failureMessage);
+            }
+
+            // rollback any uncommitted changes first
+            rollback();
+
+            long lastCommitTimestamp = getCurrentTimestamp();
+
+            CommitInfo lastCommit = commitIndex.get(lastCommitTimestamp);
+
+            if (lastCommit != null) {
+                ApplyBatch batch = submitRevert(lastCommit);
+                if (batch == null) {
+                    return ActionResult.failure("Cannot revert. The commit could not be read.");
+                }
+                moveRefs(lastCommit.parentCommit, lastCommit.parentCommit, "revert " + lastCommit.timestamp);
+                // delete commit file after reverting
+                commitCache.remove(worldName, lastCommit.timestamp);
+                keyframes.delete(lastCommit.timestamp);
+                try {
+                    commitIndex.remove(lastCommit.timestamp);
+                    spatialIndex.remove(lastCommit.timestamp);
+                    packs.remove(lastCommit.timestamp);
+                    // a packed copy only gives its space back once gc compacts the pack
+                    long bytes = deleteLooseFile(commitsPath.resolve(lastCommit.timestamp + CommitCodec.COMMIT_EXTENSION))
+                            + deleteLooseFile(commitsPath.resolve(lastCommit.timestamp + CommitCodec.LEGACY_EXTENSION));
+                    stats.commitRemoved(lastCommit.changeCount, bytes);
+                    GitGudPlugin.LOGGER.atInfo().log("Deleted commit file for timestamp: " + lastCommit.timestamp);
+                } catch (IOException e) {
+                    GitGudPlugin.LOGGER.atWarning().log("Failed to delete commit file: " + e.getMessage());
+                }
+                return ActionResult.success("Reverted commit " + lastCommit.timestamp + ".", batch);
+            } else {
+                String noCommitMessage = "No commits found to revert.";
+                GitGudPlugin.LOGGER.atInfo().log(noCommitMessage);
+                return ActionResult.failure(noCommitMessage);
+            }
+        }
+    }
+
+    public ActionResult checkoutCommit(int targetIndex) {
+        List<CommitInfo> target = getCommitInfoHistory(targetIndex, 1);
+        if (target.isEmpty()) {
             GitGudPlugin.LOGGER.atInfo().log("Invalid commit index: " + targetIndex);
             return ActionResult.failure("Invalid commit index: " + targetIndex);
         }
-        long targetTimestamp = new ArrayList<>(commitHistory.keySet()).get(targetIndex);
-        return checkoutCommit(getCommitByTimestamp(targetTimestamp));
+        return checkoutTimestamp(target.get(0).timestamp);
     }
 
-    public static ActionResult checkoutCommit(Commit targetCommit) {
-        if (targetCommit == null) {
-            GitGudPlugin.LOGGER.atInfo().log("Target commit not found.");
-            return ActionResult.failure("Target commit not found.");
+    /**
+     * Checks out a commit by timestamp. Only the commit index is consulted to find it, so the target itself is never
+     * decoded unless its changes are needed.
+     */
+    public ActionResult checkoutTimestamp(long targetTimestamp) {
+        synchronized (historyLock) {
+            if (!commitIndex.contains(targetTimestamp)) {
+                GitGudPlugin.LOGGER.atInfo().log("Target commit not found.");
+                return ActionResult.failure("Target commit not found.");
+            }
+
+            rollback();
+
+            long start = System.nanoTime();
+            List<CommitInfo> commitHistory = getCommitInfoHistory();
+            long currentTimestamp = getCurrentTimestamp();
+
+            if (currentTimestamp == targetTimestamp) {
+                GitGudPlugin.LOGGER.atInfo().log("Already on commit " + targetTimestamp + ".");
+                return ActionResult.failure("Already on target commit.");
+            }
+
+            int currentIndex = getCommitIndex(commitHistory, currentTimestamp);
+            int targetIndex = getCommitIndex(commitHistory, targetTimestamp);
+
+            if (currentIndex == -1 || targetIndex == -1) {
+                GitGudPlugin.LOGGER.atWarning().log("Cannot checkout. CURRENT or target is not in HEAD commit chain.");
+                return ActionResult.failure("Cannot checkout. CURRENT or target is not in commit chain.");
+            }
+
+            // the history is newest first, so the commits being crossed are the ones between the two indices,
+            // with the older endpoint excluded
+            boolean backward = currentIndex < targetIndex;
+            List<CommitInfo> span = backward
+                    ? commitHistory.subList(currentIndex, targetIndex)
+                    : commitHistory.subList(targetIndex, currentIndex);
+
+            // replaying the span touches every change in it; starting from keyframes touches every position in the two
+            // keyframes plus the commits after them, so pick whichever reads less
+            long spanCost = 0;
+            for (CommitInfo info : span) {
+                spanCost += info.changeCount;
+            }
+            boolean useKeyframes = keyframeCost(commitHistory, currentIndex) + keyframeCost(commitHistory, targetIndex) < spanCost;
+
+            ApplyBatch batch = new ApplyBatch("checkout " + targetTimestamp);
+            if (useKeyframes) {
+                try {
+                    addKeyframeDiff(batch, commitHistory, currentIndex, targetIndex);
+                } catch (IOException e) {
+                    GitGudPlugin.LOGGER.atWarning().log("Failed to checkout from keyframes: " + e.getMessage());
+                    return ActionResult.failure("Cannot checkout. A keyframe or commit could not be read.");
+                }
+            } else {
+                Map<Long, NetChange> netChanges = computeNetChanges(span, null);
+                if (netChanges == null) {
+                    return ActionResult.failure("Cannot checkout. A commit in the range could not be read.");
+                }
+                for (Map.Entry<Long, NetChange> entry : netChanges.entrySet()) {
+                    NetChange change = entry.getValue();
+                    int from = backward ? change.after : change.before;
+                    int to = backward ? change.before : change.after;
+                    if (from != to) {
+                        long key = entry.getKey();
+                        batch.add(PositionKeys.x(key), PositionKeys.y(key), PositionKeys.z(key), to);
+                    }
+                }
+            }
+            WorldEditApplySystem.submit(worldName, batch);
+            checkoutLatency.recordSince(start);
+
+            moveRefs(getHeadTimestamp(), targetTimestamp, "checkout " + targetTimestamp);
+            GitGudPlugin.LOGGER.atInfo().log("Checked out commit " + targetTimestamp + " across " + span.size()
+                    + " commits" + (useKeyframes ? " using keyframes" : "") + ", " + batch.size() + " blocks changed.");
+            return ActionResult.success("Checked out commit " + targetTimestamp + ".", batch);
         }
+    }
 
-        rollback();
+    /**
+     * Number of positions read to rebuild the state at {@code chain[index]} from the nearest older keyframe.
+     */
+    private long keyframeCost(List<CommitInfo> chain, int index) {
+        long cost = 0;
+        for (int i = index; i < chain.size(); i++) {
+            int keyframeSize = keyframes.size(chain.get(i).timestamp);
+            if (keyframeSize >= 0) {
+                return cost + keyframeSize;
+            }
+            cost += chain.get(i).changeCount;
+        }
+        return cost;
+    }
 
-        Map<Long, Commit> commitHistory = getCommitHistoryMap();
-        long currentTimestamp = getCurrentTimestamp();
+    private void addKeyframeDiff(ApplyBatch batch, List<CommitInfo> chain, int currentIndex, int targetIndex) throws IOException {
+        Map<Long, KeyframeStore.Entry> current = materialize(chain, currentIndex);
+        Map<Long, KeyframeStore.Entry> target = materialize(chain, targetIndex);
+
+        // a position missing from one side had not been touched yet at that commit, so it still holds its origin
+        for (Map.Entry<Long, KeyframeStore.Entry> entry : target.entrySet()) {
+            KeyframeStore.Entry currentEntry = current.get(entry.getKey());
+            int from = currentEntry != null ? currentEntry.state : entry.getValue().origin;
+            int to = entry.getValue().state;
+            if (from != to) {
+                long key = entry.getKey();
+                batch.add(PositionKeys.x(key), PositionKeys.y(key), PositionKeys.z(key), to);
+            }
+        }
+        for (Map.Entry<Long, KeyframeStore.Entry> entry : current.entrySet()) {
+            KeyframeStore.Entry currentEntry = entry.getValue();
+            if (!target.containsKey(entry.getKey()) && currentEntry.state != currentEntry.origin) {
+                long key = entry.getKey();
+                batch.add(PositionKeys.x(key), PositionKeys.y(key), PositionKeys.z(key), currentEntry.origin);
+            }
+        }
+    }
 
-        if (currentTimestamp == targetCommit.timestamp) {
-            GitGudPlugin.LOGGER.atInfo().log("Already on commit " + targetCommit.timestamp + ".");
-            return ActionResult.failure("Already on target commit.");
+    /**
+     * Rebuilds the state of every touched position at {@code chain[index]} (chain is newest first), starting from the
+     * nearest keyframe at or before it.
+     */
+    private Map<Long, KeyframeStore.Entry> materialize(List<CommitInfo> chain, int index) throws IOException {
+        int keyframeIndex = index;
+        while (keyframeIndex < chain.size() && !keyframes.has(chain.get(keyframeIndex).timestamp)) {
+            keyframeIndex++;
+        }
+        Map<Long, KeyframeStore.Entry> state = keyframeIndex < chain.size()
+                ? keyframes.read(chain.get(keyframeIndex).timestamp)
+                : new HashMap<>();
+        List<CommitInfo> toReplay = chain.subList(index, keyframeIndex).reversed();
+        if (!loadInOrder(timestamps(toReplay), this::getCommitByTimestamp, commit -> replayInto(state, commit))) {
+            throw new IOException("A commit after the keyframe could not be read");
         }
+        return state;
+    }
 
-        int currentIndex = getCommitIndex(commitHistory, currentTimestamp);
-        int targetIndex = getCommitIndex(commitHistory, targetCommit.timestamp);
+    private static void replayInto(Map<Long, KeyframeStore.Entry> state, Commit commit) {
+        ChangeBuffer changes = commit.blockChanges;
+        for (int i = 0; i < changes.size(); i++) {
+            long key = changes.positionKey(i);
+            KeyframeStore.Entry entry = state.get(key);
+            if (entry == null) {
+                state.put(key, new KeyframeStore.Entry(changes.oldBlock(i), changes.newBlock(i)));
+            } else {
+                entry.state = changes.newBlock(i);
+            }
+        }
+    }
 
-        if (currentIndex == -1 || targetIndex == -1) {
-            GitGudPlugin.LOGGER.atWarning().log("Cannot checkout. CURRENT or target is not in HEAD commit chain.");
-            return ActionResult.failure("Cannot checkout. CURRENT or target is not in commit chain.");
+    /**
+     * Queues a background keyframe for HEAD once enough commits or changes have piled up since the last one.
+     */
+    private void scheduleKeyframeIfDue() {
+        if (config.keyframeEveryCommits <= 0 && config.keyframeEveryChanges <= 0) {
+            return;
+        }
+        int commitsSinceKeyframe = 0;
+        long changesSinceKeyframe = 0;
+        for (CommitInfo info : getCommitInfoHistory()) {
+            if (keyframes.has(info.timestamp)) {
+                break;
+            }
+            commitsSinceKeyframe++;
+            changesSinceKeyframe += info.changeCount;
+        }
+        boolean due = (config.keyframeEveryCommits > 0 && commitsSinceKeyframe >= config.keyframeEveryCommits)
+                || (config.keyframeEveryChanges > 0 && changesSinceKeyframe >= config.keyframeEveryChanges);
+        if (!due) {
+            return;
         }
 
-        List<Commit> chain = new ArrayList<>(commitHistory.values());
+        long headTimestamp = getHeadTimestamp();
+        try {
+            maintenanceWriter.execute(() -> writeKeyframe(headTimestamp));
+        } catch (RejectedExecutionException e) {
+            // shutting down, the next commit after startup will catch up
+        }
+    }
 
-        if (currentIndex < targetIndex) {
-            for (int i = currentIndex; i < targetIndex; i++) {
-                revertCommit(chain.get(i));
+    private void writeKeyframe(long commitTimestamp) {
+        if (keyframes.has(commitTimestamp)) {
+            return;
+        }
+        try {
+            // starts from the previous keyframe, so this only replays the commits since then
+            List<CommitInfo> chain = commitIndex.chain(commitTimestamp, Integer.MAX_VALUE);
+            Map<Long, KeyframeStore.Entry> state = materialize(chain, 0);
+            if (!commitIndex.contains(commitTimestamp)) {
+                // reverted while the keyframe was being built
+                return;
             }
-        } else {
-            for (int i = currentIndex -1; i >= targetIndex; i--) {
-                applyCommit(chain.get(i));
+            keyframes.write(commitTimestamp, state);
+            GitGudPlugin.LOGGER.atInfo().log("Wrote keyframe for commit " + commitTimestamp + " with " + state.size() + " positions.");
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to write keyframe for commit " + commitTimestamp + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Collapses every change in the given commits (newest first) into one entry per position holding the block before
+     * the oldest commit and after the newest one. Commits are decoded without being added to the cache, since a long
+     * span would otherwise push out everything else. With a region, commits the spatial index places outside it are
+     * never opened and only the parts of the others that overlap it are decoded. Returns null if any commit cannot be
+     * read.
+     */
+    private Map<Long, NetChange> computeNetChanges(List<CommitInfo> commits, Region region) {
+        Set<Long> candidates = region == null ? null : spatialIndex.commitsIn(region);
+        List<Long> timestamps = new ArrayList<>();
+        for (CommitInfo info : commits.reversed()) {
+            if (candidates == null || candidates.contains(info.timestamp) || !spatialIndex.contains(info.timestamp)) {
+                timestamps.add(info.timestamp);
             }
         }
 
-        return ActionResult.success("Checked out commit " + targetCommit.timestamp + ".");
+        Map<Long, NetChange> netChanges = new LinkedHashMap<>();
+        boolean complete = loadInOrder(timestamps, timestamp -> readCommitChanges(timestamp, region), changes -> {
+            for (int i = 0; i < changes.size(); i++) {
+                long key = changes.positionKey(i);
+                NetChange netChange = netChanges.get(key);
+                if (netChange == null) {
+                    netChanges.put(key, new NetChange(changes.oldBlock(i), changes.newBlock(i)));
+                } else {
+                    netChange.after = changes.newBlock(i);
+                }
+            }
+        });
+        return complete ? netChanges : null;
     }
 
-    public static ActionResult rollback() {
-        // first, unstash any uncommitted changes to ensure it is included in the rollback
-        unstashBlockChanges();
+    // block palette indices before the first change and after the last one
+    private static final class NetChange {
+        final int before;
+        int after;
 
-        List<BlockChange> changesToRollback = getBlockChanges().reversed();
-        for (BlockChange change : changesToRollback) {
-            WorldEditApplySystem.enqueue(change.position.x, change.position.y, change.position.z, change.oldBlockId);
-            GitGudPlugin.LOGGER.atInfo().log("Reverting block at " + change.position + " to " + change.oldBlockId);
+        NetChange(int before, int after) {
+            this.before = before;
+            this.after = after;
         }
-        blockChanges.removeAll(changesToRollback);
-        return ActionResult.success("Rolled back " + changesToRollback.size() + " uncommitted block changes.");
     }
 
-    public static void stashBlockChanges() {
+    /**
+     * Returns the latest changes to a block as the world currently has it, newest first: the uncommitted change if
+     * there is one, then the commits up to CURRENT that touched it. Only commits the spatial index places near the
+     * block are decoded.
+     */
+    public List<BlameEntry> blame(int x, int y, int z, int limit) {
+        List<BlameEntry> entries = new ArrayList<>();
+        BlockChange uncommitted = blockChanges.get(x, y, z);
+        if (uncommitted != null) {
+            entries.add(new BlameEntry(0, null, uncommitted));
+        }
 
-        if (getBlockChanges().isEmpty()) {
-            GitGudPlugin.LOGGER.atInfo().log("No changes to stash.");
-            return;
+        long currentTimestamp = getCurrentTimestamp();
+        for (long commitTimestamp : spatialIndex.commitsAt(x, y, z)) {
+            if (entries.size() >= limit) {
+                break;
+            }
+            if (commitTimestamp > currentTimestamp) {
+                continue;
+            }
+            // only the part of the commit holding this block is decoded
+            ChangeBuffer changes = readCommitChanges(commitTimestamp, new Region(x, y, z, x, y, z));
+            CommitInfo info = commitIndex.get(commitTimestamp);
+            if (changes == null || changes.isEmpty() || info == null) {
+                continue;
+            }
+            // changes to one position are kept in order, so the last one is what the commit left behind
+            entries.add(new BlameEntry(commitTimestamp, info.message, changes.get(changes.size() - 1)));
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the commits in the HEAD chain that changed blocks inside the given box, newest first, with how many
+     * changes each made there. Commits are only decoded when they touch a cell cut by the box's edge.
+     */
+    public List<RegionHistoryEntry> getRegionHistory(Region region, int limit) {
+        List<RegionHistoryEntry> history = new ArrayList<>();
+        for (SpatialIndex.RegionMatch match : spatialIndex.query(region)) {
+            if (history.size() >= limit) {
+                break;
+            }
+            CommitInfo info = commitIndex.get(match.commitTimestamp);
+            if (info == null) {
+                continue;
+            }
+            int changesInRegion = match.changesInFullCells;
+            if (match.touchesPartialCells) {
+                ChangeBuffer changes = readCommitChanges(match.commitTimestamp, region);
+                if (changes == null) {
+                    continue;
+                }
+                for (int i = 0; i < changes.size(); i++) {
+                    // changes in fully covered cells are already counted
+                    if (!SpatialIndex.cellInside(region, changes.x(i) >> SpatialIndex.CELL_BITS, changes.y(i) >> SpatialIndex.CELL_BITS, changes.z(i) >> SpatialIndex.CELL_BITS)) {
+                        changesInRegion++;
+                    }
+                }
+            }
+            if (changesInRegion > 0) {
+                history.add(new RegionHistoryEntry(info, changesInRegion));
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Checks out a commit by index inside the region only. See {@link #checkoutRegion(long, Region)}.
+     */
+    public ActionResult checkoutCommit(int targetIndex, Region region) {
+        List<CommitInfo> commitHistory = getCommitInfoHistory();
+        if (targetIndex < 0 || targetIndex >= commitHistory.size()) {
+            GitGudPlugin.LOGGER.atInfo().log("Invalid commit index: " + targetIndex);
+            return ActionResult.failure("Invalid commit index: " + targetIndex);
         }
+        return checkoutRegion(commitHistory.get(targetIndex).timestamp, region);
+    }
+
+    /**
+     * Makes the blocks inside the region match the target commit and leaves everything else alone. CURRENT does not
+     * move; the difference from CURRENT becomes uncommitted changes, which can be committed or rolled back like any other
+     * edit. Uncommitted changes inside the region are rolled back first.
+     */
+    public ActionResult checkoutRegion(long targetTimestamp, Region region) {
+        synchronized (historyLock) {
+            synchronized (journalLock) {
+                List<CommitInfo> commitHistory = getCommitInfoHistory();
+                int currentIndex = getCommitIndex(commitHistory, getCurrentTimestamp());
+                int targetIndex = getCommitIndex(commitHistory, targetTimestamp);
+                if (currentIndex == -1 || targetIndex == -1) {
+                    GitGudPlugin.LOGGER.atWarning().log("Cannot checkout. CURRENT or target is not in HEAD commit chain.");
+                    return ActionResult.failure("Cannot checkout. CURRENT or target is not in commit chain.");
+                }
+
+                boolean backward = currentIndex < targetIndex;
+                List<CommitInfo> span = backward
+                        ? commitHistory.subList(currentIndex, targetIndex)
+                        : commitHistory.subList(targetIndex, currentIndex);
+                Map<Long, NetChange> netChanges = computeNetChanges(span, region);
+                if (netChanges == null) {
+                    return ActionResult.failure("Cannot checkout. A commit in the range could not be read.");
+                }
+
+                ApplyBatch batch = new ApplyBatch("checkout " + targetTimestamp + " in " + region);
+                rollbackInto(batch, region);
+                int changed = addAsUncommitted(batch, netChanges, backward);
+                checkpointJournal();
+                WorldEditApplySystem.submit(worldName, batch);
+
+                GitGudPlugin.LOGGER.atInfo().log("Checked out commit " + targetTimestamp + " inside " + region + " across "
+                        + span.size() + " commits, " + changed + " blocks changed.");
+                return ActionResult.success("Checked out " + changed + " blocks from commit " + targetTimestamp
+                        + " inside the region as uncommitted changes. Commit them to keep them, or rollback to undo.", batch);
+            }
+        }
+    }
+
+    /**
+     * Undoes what the CURRENT commit changed inside the region. The commit itself is kept; the undo becomes uncommitted
+     * changes, which can be committed or rolled back like any other edit. Uncommitted changes inside the region are
+     * rolled back first.
+     */
+    public ActionResult revertLatestCommit(Region region) {
+        synchronized (historyLock) {
+            synchronized (journalLock) {
+                CommitInfo currentCommit = commitIndex.get(getCurrentTimestamp());
+                if (currentCommit == null) {
+                    String noCommitMessage = "No commits found to revert.";
+                    GitGudPlugin.LOGGER.atInfo().log(noCommitMessage);
+                    return ActionResult.failure(noCommitMessage);
+                }
+                Map<Long, NetChange> netChanges = computeNetChanges(List.of(currentCommit), region);
+                if (netChanges == null) {
+                    return ActionResult.failure("Cannot revert. The commit could not be read.");
+                }
+
+                ApplyBatch batch = new ApplyBatch("revert " + currentCommit.timestamp + " in " + region);
+                rollbackInto(batch, region);
+                int changed = addAsUncommitted(batch, netChanges, true);
+                checkpointJournal();
+                WorldEditApplySystem.submit(worldName, batch);
+
+                GitGudPlugin.LOGGER.atInfo().log("Reverted commit " + currentCommit.timestamp + " inside " + region + ", " + changed + " blocks changed.");
+                return ActionResult.success("Reverted " + changed + " blocks of commit " + currentCommit.timestamp
+                        + " inside the region as uncommitted changes.", batch);
+            }
+        }
+    }
+
+    /**
+     * Rolls back uncommitted changes inside the region only.
+     */
+    public ActionResult rollback(Region region) {
+        synchronized (journalLock) {
+            ApplyBatch batch = new ApplyBatch("rollback in " + region);
+            int rolledBack = rollbackInto(batch, region);
+            checkpointJournal();
+            WorldEditApplySystem.submit(worldName, batch);
+            GitGudPlugin.LOGGER.atInfo().log("Queued " + batch.size() + " block reverts for rollback inside " + region + ".");
+            return ActionResult.success("Rolled back " + rolledBack + " uncommitted block changes inside the region.", batch);
+        }
+    }
 
-        long timestamp = System.currentTimeMillis();
+    private int rollbackInto(ApplyBatch batch, Region region) {
+        ChangeBuffer changes = blockChanges.drain(region);
+        addBackward(batch, changes);
+        return changes.size();
+    }
 
-        Path stashFile = STASH_PATH.resolve(timestamp + ".json.gz");
+    /**
+     * Queues the net changes and records each one in the working set, so the result of a region operation is tracked
+     * like edits made by hand. The caller checkpoints the journal afterwards.
+     */
+    private int addAsUncommitted(ApplyBatch batch, Map<Long, NetChange> netChanges, boolean backward) {
+        int changed = 0;
+        for (Map.Entry<Long, NetChange> entry : netChanges.entrySet()) {
+            NetChange change = entry.getValue();
+            int from = backward ? change.after : change.before;
+            int to = backward ? change.before : change.after;
+            if (from != to) {
+                long key = entry.getKey();
+                int x = PositionKeys.x(key), y = PositionKeys.y(key), z = PositionKeys.z(key);
+                batch.add(x, y, z, to);
+                blockChanges.add(x, y, z, from, to, System.currentTimeMillis());
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    public ActionResult rollback() {
+        synchronized (journalLock) {
+            ChangeBuffer changesToRollback = blockChanges.drain();
+            checkpointJournal();
+            ApplyBatch batch = new ApplyBatch("rollback");
+            addBackward(batch, changesToRollback);
+            WorldEditApplySystem.submit(worldName, batch);
+            GitGudPlugin.LOGGER.atInfo().log("Queued " + batch.size() + " block reverts for rollback.");
+            return ActionResult.success("Rolled back " + changesToRollback.size() + " uncommitted block changes.", batch);
+        }
+    }
+
+    /**
+     * Writes changes that are only in memory to the journal.
+     */
+    public void flushJournal() {
+        synchronized (journalLock) {
+            ChangeBuffer events = blockChanges.drainUnjournaled();
+            if (events.isEmpty()) {
+                return;
+            }
+            savePalette();
+            long sizeBefore = journal.getSizeBytes();
+            long start = System.nanoTime();
+            try {
+                journal.append(events);
+            } catch (IOException e) {
+                // still in memory, try again with the next flush
+                blockChanges.requeueUnjournaled(events);
+                GitGudPlugin.LOGGER.atWarning().log("Failed to write block changes to the journal: " + e.getMessage());
+                return;
+            }
+            journalAppendLatency.recordSince(start);
+            journalBytesWritten.add(Math.max(0, journal.getSizeBytes() - sizeBefore));
+            // a long session without commits keeps appending raw events, fold them into one record
+            if (journal.getSizeBytes() > config.journalCompactBytes) {
+                checkpointJournal();
+            }
+        }
+    }
 
+    private void checkpointJournal() {
+        savePalette();
+        long start = System.nanoTime();
         try {
-            String stashJson = serializeJson(new Stash(getBlockChanges(), timestamp));
-            byte[] compressedData = gzipCompress(stashJson.getBytes());
-            Files.write(stashFile, compressedData);
-            blockChanges.clear();
+            journal.checkpoint(blockChanges.checkpoint());
+            journalCheckpointLatency.recordSince(start);
         } catch (IOException e) {
-            GitGudPlugin.LOGGER.atWarning().log("Failed to stash block changes: " + e.getMessage());
+            GitGudPlugin.LOGGER.atWarning().log("Failed to checkpoint the journal: " + e.getMessage());
         }
+    }
 
-        GitGudPlugin.LOGGER.atInfo().log("All uncommitted block changes have been stashed.");
+    /**
+     * Stops the background writers, waiting for any journal write in progress, then flushes whatever every world has
+     * left in memory.
+     */
+    public static void shutdown() {
+        // a world still opening has held changes that need to reach its journal below
+        repositoryOpener.shutdown();
+        try {
+            if (!repositoryOpener.awaitTermination(30, TimeUnit.SECONDS)) {
+                GitGudPlugin.LOGGER.atWarning().log("Timed out waiting for repositories to finish opening.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journalWriter.shutdown();
+        maintenanceWriter.shutdown();
+        commitLoader.shutdown();
+        try {
+            if (!journalWriter.awaitTermination(30, TimeUnit.SECONDS)) {
+                GitGudPlugin.LOGGER.atWarning().log("Timed out waiting for the journal writer to finish.");
+            }
+            // keyframes and packs only copy data that is already safe elsewhere, and are moved into place atomically,
+            // so don't hold up shutdown for one
+            if (!maintenanceWriter.awaitTermination(5, TimeUnit.SECONDS)) {
+                maintenanceWriter.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Repository repository : repositories.values()) {
+            repository.flushJournal();
+            repository.journal.close();
+        }
+        savePalette();
+        Metrics.stopWriting();
     }
 
-    public static void unstashBlockChanges() {
+    private void recoverJournal() {
+        synchronized (journalLock) {
+            try {
+                journal.recover(blockChanges);
+                migrateStashFiles();
+                GitGudPlugin.LOGGER.atInfo().log("Recovered " + blockChanges.size() + " uncommitted block changes from the journal.");
+            } catch (IOException e) {
+                GitGudPlugin.LOGGER.atWarning().log("Failed to recover the journal: " + e.getMessage());
+            }
+        }
+    }
 
-        try {
-            List<Path> stashFiles = Files.list(STASH_PATH).toList();
-            for (Path file: stashFiles) {
-                GitGudPlugin.LOGGER.atInfo().log("Found stash file: " + file.getFileName());
+    /**
+     * Moves changes from the stash files used before the journal existed into the working set and the journal.
+     */
+    private void migrateStashFiles() throws IOException {
+        if (!Files.isDirectory(stashPath)) {
+            return;
+        }
 
+        // oldest stash first, so later stashes coalesce on top of earlier ones
+        List<Path> stashFiles;
+        try (Stream<Path> files = Files.list(stashPath)) {
+            stashFiles = files.sorted(Comparator.comparing(Repository::stashFileTimestamp)).toList();
+        }
+        ChangeBuffer stashedChanges = new ChangeBuffer();
+        for (Path file : stashFiles) {
+            if (file.getFileName().toString().endsWith(CommitCodec.LEGACY_EXTENSION)) {
                 byte[] stashJson = Files.readAllBytes(file);
-                Stash stashCommit = deserializeJson(new String(gzipDecompress(stashJson)), Stash.class);
-                for (BlockChange change : stashCommit.blockChanges) {
-                    addBlockChange(change, false);
-                }
-                Files.delete(file);
-                GitGudPlugin.LOGGER.atInfo().log("Unstashed block changes from file: " + file.getFileName());
+                Stash stash = deserializeJson(new String(gzipDecompress(stashJson)), Stash.class);
+                stashedChanges.addAll(stash.blockChanges);
             }
+        }
 
-            // sort block changes by timestamp after unstashing
-            blockChanges.sort(Comparator.comparingLong(a -> a.timestamp));
-
-            GitGudPlugin.LOGGER.atInfo().log("Stashed block changes have been restored.");
+        // stashed changes are older than anything already recovered
+        blockChanges.addAllOlder(stashedChanges);
+        journal.checkpoint(blockChanges.checkpoint());
+        for (Path file : stashFiles) {
+            Files.delete(file);
+        }
+        Files.delete(stashPath);
+        GitGudPlugin.LOGGER.atInfo().log("Migrated " + stashFiles.size() + " stash files into the journal.");
+    }
 
-        } catch (IOException e) {
-            GitGudPlugin.LOGGER.atWarning().log("Failed to unstash block changes: " + e.getMessage());
+    private static long stashFileTimestamp(Path file) {
+        String fileName = file.getFileName().toString();
+        int end = fileName.indexOf('.');
+        try {
+            return Long.parseLong(end == -1 ? fileName : fileName.substring(0, end));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
         }
     }
 
-    public static ActionResult addTagToLatestCommit(String tagName, String description) {
+    public ActionResult addTagToLatestCommit(String tagName, String description) {
         long lastCommitTimestamp = getLastCommitTimestamp();
         if (lastCommitTimestamp == 0) {
             GitGudPlugin.LOGGER.atInfo().log("No commits found to tag.");
@@ -336,206 +1296,714 @@ public class Repository {
         return addTag(tagName, description, lastCommitTimestamp);
     }
 
-    public static ActionResult addTag(String tagName, String description, long commitTimestamp) {
-        Path tagFile = TAGS_PATH.resolve(tagName);
+    public ActionResult addTag(String tagName, String description, long commitTimestamp) {
         try {
-            Tag tag = new Tag(tagName, description, commitTimestamp);
-            String tagJson = serializeJson(tag);
-            Files.writeString(tagFile, tagJson);
+            refs.putTag(new Tag(tagName, description, commitTimestamp));
             return ActionResult.success("Tag '" + tagName + "' added to commit " + commitTimestamp + ".");
         } catch (IOException e) {
             return ActionResult.failure("Failed to add tag: " + e.getMessage());
         }
     }
 
-    public static ActionResult deleteTag(String tagName) {
-        Path tagFile = TAGS_PATH.resolve(tagName);
-        if (!Files.exists(tagFile)) {
-            return ActionResult.failure("No tag found with name: " + tagName);
-        }
+    public ActionResult deleteTag(String tagName) {
         try {
-            Files.delete(tagFile);
+            if (!refs.removeTag(tagName)) {
+                return ActionResult.failure("No tag found with name: " + tagName);
+            }
             return ActionResult.success("Tag '" + tagName + "' deleted successfully.");
         } catch (IOException e) {
             return ActionResult.failure("Failed to delete tag: " + e.getMessage());
         }
     }
 
-    public static Tag getTag(String tagName) {
-        Path tagFile = TAGS_PATH.resolve(tagName);
-        if (Files.exists(tagFile)) {
-            try {
-                String tagJson = Files.readString(tagFile);
-                return deserializeJson(tagJson, Tag.class);
-            } catch (IOException e) {
-                GitGudPlugin.LOGGER.atWarning().log("Failed to read tag file: " + e.getMessage());
-                return null;
-            }
-        } else {
+    public Tag getTag(String tagName) {
+        Tag tag = refs.getTag(tagName);
+        if (tag == null) {
             GitGudPlugin.LOGGER.atInfo().log("No tag found with name: " + tagName);
-            return null;
         }
+        return tag;
     }
 
-    public static List<Tag> listTags() {
-        List<Tag> tags = new ArrayList<>();
+    public List<Tag> listTags() {
+        return refs.listTags();
+    }
+
+    /**
+     * Returns the most recent reflog lines, newest first.
+     */
+    public List<String> getReflog(int limit) {
         try {
-            List<Path> tagFiles = Files.list(TAGS_PATH).toList();
-            for (Path tagFile : tagFiles) {
-                String tagJson = Files.readString(tagFile);
-                Tag tag = deserializeJson(tagJson, Tag.class);
-                tags.add(tag);
-            }
-            GitGudPlugin.LOGGER.atInfo().log("Listed " + tags.size() + " tags.");
+            return refs.readReflog(limit);
         } catch (IOException e) {
-            GitGudPlugin.LOGGER.atWarning().log("Failed to list tags: " + e.getMessage());
+            GitGudPlugin.LOGGER.atWarning().log("Failed to read reflog: " + e.getMessage());
+            return List.of();
         }
-        return tags;
     }
 
-    public static long getLastCommitTimestamp() {
+    public long getLastCommitTimestamp() {
         return getHeadTimestamp();
     }
 
-    public static long getHeadTimestamp() {
-        try {
-            String headContent = Files.readString(HEAD_PATH).trim();
-            return headContent.isEmpty() ? 0 : Long.parseLong(headContent);
-        } catch (IOException | NumberFormatException e) {
-            GitGudPlugin.LOGGER.atWarning().log("Failed to read HEAD: " + e.getMessage());
-            return 0;
-        }
+    public long getHeadTimestamp() {
+        return refs.head();
     }
 
-    public static long getCurrentTimestamp() {
-        try {
-            String currentContent = Files.readString(CURRENT_PATH).trim();
-            return currentContent.isEmpty() ? 0 : Long.parseLong(currentContent);
-        } catch (IOException | NumberFormatException e) {
-            GitGudPlugin.LOGGER.atWarning().log("Failed to read CURRENT: " + e.getMessage());
-            return 0;
+    public long getCurrentTimestamp() {
+        return refs.current();
+    }
+
+    public Commit getCommitByTimestamp(long timestamp) {
+        Commit cached = commitCache.get(worldName, timestamp);
+        if (cached != null) {
+            return cached;
+        }
+        Commit commit = readCommitFile(timestamp);
+        if (commit != null) {
+            commitCache.put(worldName, commit);
         }
+        return commit;
     }
 
-    public static Commit getCommitByTimestamp(long timestamp) {
-        Path commitFile = COMMITS_PATH.resolve(timestamp + ".json.gz");
-        if (Files.exists(commitFile)) {
-            try {
-                byte[] commitJson = Files.readAllBytes(commitFile);
+    private Commit readCommitFile(long timestamp) {
+        return readCommitFile(timestamp, null);
+    }
+
+    /**
+     * Reads a commit from its pack or loose file, keeping only the changes inside the region if one is given.
+     */
+    private Commit readCommitFile(long timestamp, Region region) {
+        Path commitFile = commitsPath.resolve(timestamp + CommitCodec.COMMIT_EXTENSION);
+        Path legacyCommitFile = commitsPath.resolve(timestamp + CommitCodec.LEGACY_EXTENSION);
+        try {
+            InputStream packed = packs.open(timestamp);
+            if (packed != null) {
+                return CommitCodec.readCommit(packed, "packed commit " + timestamp, region);
+            }
+            if (Files.exists(commitFile)) {
+                try {
+                    return CommitCodec.readCommit(commitFile, region);
+                } catch (NoSuchFileException e) {
+                    // packed and deleted in the background since the check above
+                    packed = packs.open(timestamp);
+                    if (packed == null) {
+                        throw e;
+                    }
+                    return CommitCodec.readCommit(packed, "packed commit " + timestamp, region);
+                }
+            } else if (Files.exists(legacyCommitFile)) {
+                // commits written before the binary format are gzipped json
+                byte[] commitJson = Files.readAllBytes(legacyCommitFile);
                 String decompressedJson = new String(gzipDecompress(commitJson));
-                return deserializeJson(decompressedJson, Commit.class);
-            } catch (IOException e) {
-                GitGudPlugin.LOGGER.atWarning().log("Failed to read commit file: " + e.getMessage());
+                Commit commit = deserializeJson(decompressedJson, Commit.class);
+                if (region != null) {
+                    commit.blockChanges = commit.blockChanges.inside(region);
+                }
+                return commit;
+            } else {
+                GitGudPlugin.LOGGER.atInfo().log("No commit found with timestamp: " + timestamp);
                 return null;
             }
-        } else {
-            GitGudPlugin.LOGGER.atInfo().log("No commit found with timestamp: " + timestamp);
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to read commit file: " + e.getMessage());
             return null;
         }
     }
 
-    public static List<Commit> getCommitHistory(int limit) {
+    /**
+     * Reads the changes a commit made inside the region, or all of them if the region is null, from the cache if the
+     * commit is there and otherwise by decoding only the parts of its file that overlap the region. The result is not
+     * cached. Returns null if the commit cannot be read.
+     */
+    private ChangeBuffer readCommitChanges(long timestamp, Region region) {
+        Commit commit = commitCache.get(worldName, timestamp);
+        if (commit == null) {
+            commit = readCommitFile(timestamp, region);
+            return commit == null ? null : commit.blockChanges;
+        }
+        return region == null ? commit.blockChanges : commit.blockChanges.inside(region);
+    }
+
+    public List<Commit> getCommitHistory(int limit) {
         ArrayList<Commit> history = new ArrayList<>();
         if (limit <= 0) {
             GitGudPlugin.LOGGER.atInfo().log("Invalid commit history limit: " + limit);
             return history;
         }
 
-        long lastCommitTimestamp = getLastCommitTimestamp();
-        while (history.size() < limit && lastCommitTimestamp > 0) {
-            Commit commit = getCommitByTimestamp(lastCommitTimestamp);
-            if (commit != null) {
-                history.add(commit);
-                lastCommitTimestamp = commit.parentCommit;
-            } else {
-                break;
-            }
-        }
+        loadInOrder(timestamps(commitIndex.chain(getLastCommitTimestamp(), limit)), this::getCommitByTimestamp, history::add);
         GitGudPlugin.LOGGER.atInfo().log("Retrieved commit history with " + history.size() + " commits");
         return history;
     }
 
-    public static Map<Long, Commit> getCommitHistoryMap() {
-        LinkedHashMap<Long, Commit> history = new LinkedHashMap<>();
-        for (Commit commit : getCommitHistory()) {
-            history.put(commit.timestamp, commit);
+    /**
+     * Returns commit metadata from HEAD backward without decoding any commit files.
+     */
+    public List<CommitInfo> getCommitInfoHistory(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
         }
-        return history;
+        return commitIndex.chain(getLastCommitTimestamp(), limit);
+    }
+
+    /**
+     * Returns commit metadata from HEAD backward, starting {@code skip} commits below HEAD. Only the commits up to the
+     * end of the page are visited, so the cost does not depend on how long the history is past it.
+     */
+    public List<CommitInfo> getCommitInfoHistory(int skip, int limit) {
+        if (limit <= 0 || skip < 0) {
+            return new ArrayList<>();
+        }
+        return commitIndex.chain(getLastCommitTimestamp(), skip, limit);
     }
 
-    public static List<Commit> getCommitHistory() {
+    public List<CommitInfo> getCommitInfoHistory() {
+        return getCommitInfoHistory(Integer.MAX_VALUE);
+    }
+
+    public List<Commit> getCommitHistory() {
         return getCommitHistory(Integer.MAX_VALUE);
     }
 
-    public static void setHead(long timestamp) {
+    public void setHead(long timestamp) {
+        moveRefs(timestamp, getCurrentTimestamp(), "set HEAD");
+    }
+
+    public void setCurrent(long timestamp) {
+        moveRefs(getHeadTimestamp(), timestamp, "set CURRENT");
+    }
+
+    /**
+     * Moves HEAD and CURRENT in one update, so an operation that moves both records them together.
+     */
+    private void moveRefs(long head, long current, String reason) {
         try {
-            Files.writeString(HEAD_PATH, String.valueOf(timestamp));
-            GitGudPlugin.LOGGER.atInfo().log("HEAD updated to timestamp: " + timestamp);
+            refs.update(head, current, reason);
+            GitGudPlugin.LOGGER.atInfo().log("HEAD is " + head + ", CURRENT is " + current + " (" + reason + ")");
         } catch (IOException e) {
-            GitGudPlugin.LOGGER.atWarning().log("Failed to update HEAD: " + e.getMessage());
+            GitGudPlugin.LOGGER.atWarning().log("Failed to update HEAD and CURRENT: " + e.getMessage());
+        }
+    }
+
+    private boolean isDetached() {
+        return getHeadTimestamp() != getCurrentTimestamp();
+    }
+
+    private static int getCommitIndex(List<CommitInfo> chain, long timestamp) {
+        for (int i = 0; i < chain.size(); i++) {
+            if (chain.get(i).timestamp == timestamp) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private interface LoadedConsumer<T, E extends Exception> {
+        void accept(T value) throws E;
+    }
+
+    /**
+     * Loads the given commits on the loader pool, a few ahead of the consumer, and hands the results to the consumer in
+     * list order on the calling thread, so only a bounded number of decoded commits is held at once. Stops at the first
+     * commit that loads as null and returns false.
+     */
+    private static <T, E extends Exception> boolean loadInOrder(List<Long> timestamps, LongFunction<T> loader, LoadedConsumer<T, E> consumer) throws E {
+        int window = LOADER_THREADS * 2;
+        ArrayDeque<ForkJoinTask<T>> inFlight = new ArrayDeque<>();
+        int next = 0;
+        try {
+            for (int i = 0; i < timestamps.size(); i++) {
+                while (next < timestamps.size() && next < i + window) {
+                    long timestamp = timestamps.get(next++);
+                    ForkJoinTask<T> task = ForkJoinTask.adapt(() -> loader.apply(timestamp));
+                    try {
+                        commitLoader.execute(task);
+                    } catch (RejectedExecutionException e) {
+                        // shutting down, load on this thread instead
+                        task.invoke();
+                    }
+                    inFlight.add(task);
+                }
+                T result = inFlight.poll().join();
+                if (result == null) {
+                    return false;
+                }
+                consumer.accept(result);
+            }
+            return true;
+        } finally {
+            for (ForkJoinTask<T> task : inFlight) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private static List<Long> timestamps(List<CommitInfo> commits) {
+        List<Long> timestamps = new ArrayList<>(commits.size());
+        for (CommitInfo info : commits) {
+            timestamps.add(info.timestamp);
         }
+        return timestamps;
     }
 
-    public static void setCurrent(long timestamp) {
+    /**
+     * Passes every change of a commit to the visitor newest first, without building the commit. A cached copy is used if
+     * there is one; otherwise the pack or loose file is decoded a block at a time. Returns false if the commit cannot be
+     * read.
+     */
+    private boolean streamCommitReversed(long timestamp, CommitCodec.ChangeVisitor visitor) {
+        Path commitFile = commitsPath.resolve(timestamp + CommitCodec.COMMIT_EXTENSION);
+        Commit commit = commitCache.get(worldName, timestamp);
+        if (commit == null && !packs.contains(timestamp) && !Files.exists(commitFile)) {
+            // gzipped json from before the binary format is only ever read whole
+            commit = readCommitFile(timestamp);
+            if (commit == null) {
+                return false;
+            }
+        }
+        if (commit != null) {
+            ChangeBuffer changes = commit.blockChanges;
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                visitor.accept(changes.x(i), changes.y(i), changes.z(i), changes.oldBlock(i), changes.newBlock(i), changes.timestamp(i));
+            }
+            return true;
+        }
+
         try {
-            Files.writeString(CURRENT_PATH, String.valueOf(timestamp));
-            GitGudPlugin.LOGGER.atInfo().log("CURRENT updated to timestamp: " + timestamp);
+            try {
+                streamCommitFile(timestamp, commitFile, visitor);
+            } catch (NoSuchFileException e) {
+                // packed and deleted in the background since the check above
+                if (!packs.contains(timestamp)) {
+                    throw e;
+                }
+                streamCommitFile(timestamp, commitFile, visitor);
+            }
+            return true;
         } catch (IOException e) {
-            GitGudPlugin.LOGGER.atWarning().log("Failed to update CURRENT: " + e.getMessage());
+            GitGudPlugin.LOGGER.atWarning().log("Failed to read commit file: " + e.getMessage());
+            return false;
         }
     }
 
-    private static boolean isDetached() {
-        return getHeadTimestamp() != getCurrentTimestamp();
+    private void streamCommitFile(long timestamp, Path commitFile, CommitCodec.ChangeVisitor visitor) throws IOException {
+        // reading backward needs to seek, so the compressed file is held in memory (or read from the mapped pack)
+        ByteBuffer file = packs.bytes(timestamp);
+        CommitCodec.forEachChangeReversed(file != null ? file : ByteBuffer.wrap(Files.readAllBytes(commitFile)), "commit " + timestamp, visitor);
     }
 
-    private static int getCommitIndex(Map<Long, Commit> chain, long timestamp) {
-        int index = 0;
-        for (Long commitTimestamp : chain.keySet()) {
-            if (commitTimestamp == timestamp) {
-                return index;
+    // newest change first, restoring the block each one replaced
+    private static void addBackward(ApplyBatch batch, ChangeBuffer changes) {
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            batch.add(changes.x(i), changes.y(i), changes.z(i), changes.oldBlock(i));
+        }
+    }
+
+    /**
+     * Moves every loose commit file into new pack files. Commits made while this runs stay loose until the next run.
+     */
+    public ActionResult packCommits() {
+        List<Long> looseCommits = new ArrayList<>();
+        try (Stream<Path> files = Files.list(commitsPath)) {
+            for (Path file : files.toList()) {
+                long timestamp = looseCommitTimestamp(file);
+                if (timestamp > 0 && commitIndex.contains(timestamp) && !packs.contains(timestamp)) {
+                    looseCommits.add(timestamp);
+                }
             }
-            index++;
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to list loose commits: " + e.getMessage());
+            return ActionResult.failure("Failed to pack commits. Check logs for details.");
+        }
+        if (looseCommits.isEmpty()) {
+            return ActionResult.failure("No loose commits to pack.");
+        }
+        looseCommits.sort(Comparator.naturalOrder());
+
+        int packsBefore = packs.packCount();
+        try {
+            packs.write(looseCommits, this::readLooseCommitBytes);
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to write pack: " + e.getMessage());
+            return ActionResult.failure("Failed to pack commits. Check logs for details.");
+        }
+
+        for (long timestamp : looseCommits) {
+            try {
+                if (!commitIndex.contains(timestamp)) {
+                    // reverted while the pack was being written
+                    packs.remove(timestamp);
+                }
+                Files.deleteIfExists(commitsPath.resolve(timestamp + CommitCodec.COMMIT_EXTENSION));
+                Files.deleteIfExists(commitsPath.resolve(timestamp + CommitCodec.LEGACY_EXTENSION));
+            } catch (IOException e) {
+                // the packed copy is read first, so a leftover loose file is harmless
+                GitGudPlugin.LOGGER.atWarning().log("Failed to remove loose commit " + timestamp + ": " + e.getMessage());
+            }
+        }
+
+        // a commit saved meanwhile would otherwise have its bytes overwritten by the count from before it
+        synchronized (historyLock) {
+            try {
+                stats.setCommitBytes(commitStorageBytes());
+            } catch (IOException e) {
+                GitGudPlugin.LOGGER.atWarning().log("Failed to update repository stats: " + e.getMessage());
+            }
+        }
+
+        String successMessage = "Packed " + looseCommits.size() + " commits into " + (packs.packCount() - packsBefore) + " pack files.";
+        GitGudPlugin.LOGGER.atInfo().log(successMessage);
+        return ActionResult.success(successMessage);
+    }
+
+    /**
+     * Runs {@link #packCommits()} on the background thread.
+     */
+    public CompletableFuture<ActionResult> packCommitsInBackground() {
+        return CompletableFuture.supplyAsync(this::packCommits, maintenanceWriter);
+    }
+
+    /**
+     * Encodes the HEAD commit with each codec and reports the size and encode time of each, so the codec in the config
+     * can be picked by trading write time against disk space. Nothing is written except a new dictionary file.
+     */
+    public ActionResult compareCompression() {
+        long headTimestamp = getHeadTimestamp();
+        Commit commit = headTimestamp == 0 ? null : getCommitByTimestamp(headTimestamp);
+        if (commit == null) {
+            return ActionResult.failure("No commit to compress. Make a commit first.");
+        }
+
+        List<Compression> candidates = new ArrayList<>();
+        candidates.add(Compression.none());
+        candidates.add(Compression.deflate(1));
+        candidates.add(Compression.deflate(Compression.DEFAULT_LEVEL));
+        candidates.add(Compression.deflate(9));
+        try {
+            candidates.add(Compression.dictionary(Compression.DEFAULT_LEVEL));
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to build compression dictionary: " + e.getMessage());
+        }
+
+        StringBuilder message = new StringBuilder("HEAD commit " + commit.timestamp + " (" + commit.blockChanges.size()
+                + " changes), configured: " + commitCompression().describe());
+        try {
+            for (Compression compression : candidates) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                long start = System.nanoTime();
+                CommitCodec.writeCommit(bytes, commit, compression);
+                long micros = (System.nanoTime() - start) / 1000;
+                message.append("\n  ").append(compression.describe()).append(": ").append(bytes.size())
+                        .append(" bytes in ").append(micros / 1000.0).append(" ms");
+            }
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to compare compression: " + e.getMessage());
+            return ActionResult.failure("Failed to compare compression. Check logs for details.");
+        }
+        return ActionResult.success(message.toString());
+    }
+
+    /**
+     * Runs {@link #compareCompression()} on the background thread.
+     */
+    public CompletableFuture<ActionResult> compareCompressionInBackground() {
+        return CompletableFuture.supplyAsync(this::compareCompression, maintenanceWriter);
+    }
+
+    /**
+     * Squashes runs of old commits into one commit each, keeping one net change per position, so old history takes less
+     * space and less time to replay. The newest {@code gcKeepRecentCommits} commits are left alone, and so are the
+     * commits at run boundaries: tagged commits, CURRENT and commits with a keyframe. A run is squashed into a commit
+     * with the timestamp of its newest member, so tags, keyframes and the next commit's parent link still point at it;
+     * the squashed commit's parent is the parent of the run's oldest member.
+     * <p>
+     * Runs are read and encoded without holding any lock, so tracking, commits and checkouts carry on meanwhile. Each
+     * run is then swapped in under the history lock, and skipped if a revert, checkout or tag touched it since.
+     */
+    public ActionResult collectGarbage() {
+        commitsSinceGc.set(0);
+        List<List<CommitInfo>> runs = findSquashRuns();
+        if (runs.isEmpty()) {
+            return ActionResult.failure("Nothing to squash.");
+        }
+
+        long bytesBefore = stats.getCommitBytes();
+        int squashedCommits = 0;
+        int squashedRuns = 0;
+        long changesBefore = 0;
+        long changesAfter = 0;
+        for (List<CommitInfo> run : runs) {
+            CommitInfo squashed = squashRun(run);
+            if (squashed != null) {
+                squashedRuns++;
+                squashedCommits += run.size();
+                for (CommitInfo info : run) {
+                    changesBefore += info.changeCount;
+                }
+                changesAfter += squashed.changeCount;
+            }
+        }
+        if (squashedRuns == 0) {
+            return ActionResult.failure("Nothing was squashed. Check logs for details.");
+        }
+
+        try {
+            // squashed commits leave dead copies behind in packs
+            packs.compact();
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to compact packs: " + e.getMessage());
+        }
+
+        // held so a commit saved meanwhile is either in the recount or added after it, never lost between the two
+        synchronized (historyLock) {
+            try {
+                stats.reset(commitIndex.size(), commitIndex.totalChangeCount(), commitStorageBytes());
+            } catch (IOException e) {
+                GitGudPlugin.LOGGER.atWarning().log("Failed to update repository stats: " + e.getMessage());
+            }
+        }
+        String successMessage = "Squashed " + squashedCommits + " commits into " + squashedRuns + ", " + changesBefore
+                + " block changes down to " + changesAfter + ", commit storage " + bytesBefore + " -> "
+                + stats.getCommitBytes() + " bytes.";
+        GitGudPlugin.LOGGER.atInfo().log(successMessage);
+        return ActionResult.success(successMessage);
+    }
+
+    /**
+     * Runs {@link #collectGarbage()} on the background thread.
+     */
+    public CompletableFuture<ActionResult> collectGarbageInBackground() {
+        return CompletableFuture.supplyAsync(this::collectGarbage, maintenanceWriter);
+    }
+
+    private void scheduleGcIfDue() {
+        if (config.gcEveryCommits <= 0 || commitsSinceGc.incrementAndGet() < config.gcEveryCommits) {
+            return;
+        }
+        commitsSinceGc.set(0);
+        try {
+            maintenanceWriter.execute(this::collectGarbage);
+        } catch (RejectedExecutionException e) {
+            // shutting down
         }
-        return -1;
     }
 
-    private static void applyCommitBackward(Commit commit) {
-        List<BlockChange> changes = commit.blockChanges.reversed();
-        for (BlockChange change : changes) {
-            WorldEditApplySystem.enqueue(change.position.x, change.position.y, change.position.z, change.oldBlockId);
-            GitGudPlugin.LOGGER.atInfo().log("Reverting block at " + change.position + " to " + change.oldBlockId);
+    /**
+     * Splits the commits below the kept recent ones into runs, oldest first. Each run ends at a boundary commit or at
+     * the last squashable commit; runs of a single commit are left out.
+     */
+    private List<List<CommitInfo>> findSquashRuns() {
+        List<CommitInfo> chain = getCommitInfoHistory();
+        int keep = Math.max(1, config.gcKeepRecentCommits);
+        List<List<CommitInfo>> runs = new ArrayList<>();
+        if (chain.size() <= keep) {
+            return runs;
         }
+        Set<Long> boundaries = squashBoundaries();
+
+        List<CommitInfo> run = new ArrayList<>();
+        for (CommitInfo info : chain.subList(keep, chain.size()).reversed()) {
+            run.add(info);
+            if (boundaries.contains(info.timestamp)) {
+                if (run.size() > 1) {
+                    runs.add(run);
+                }
+                run = new ArrayList<>();
+            }
+        }
+        if (run.size() > 1) {
+            runs.add(run);
+        }
+        return runs;
     }
 
-    private static void applyCommitForward(Commit commit) {
-        for (BlockChange change : commit.blockChanges) {
-            WorldEditApplySystem.enqueue(change.position.x, change.position.y, change.position.z, change.newBlockId);
-            GitGudPlugin.LOGGER.atInfo().log("Applying block at " + change.position + " to " + change.newBlockId);
+    private Set<Long> squashBoundaries() {
+        Set<Long> boundaries = new HashSet<>();
+        for (Tag tag : refs.listTags()) {
+            boundaries.add(tag.commitId);
         }
+        boundaries.add(getCurrentTimestamp());
+        boundaries.add(getHeadTimestamp());
+        for (CommitInfo info : getCommitInfoHistory()) {
+            if (keyframes.has(info.timestamp)) {
+                boundaries.add(info.timestamp);
+            }
+        }
+        return boundaries;
     }
 
-    public static long getStashCount() {
+    /**
+     * Writes the squash of a run (oldest first) and swaps it in. Returns the squashed commit's metadata, or null if the
+     * run was skipped.
+     */
+    private CommitInfo squashRun(List<CommitInfo> run) {
+        CommitInfo oldest = run.get(0);
+        CommitInfo newest = run.get(run.size() - 1);
+
+        // folding the run through a working set leaves one net change per position, with no-op ones dropped
+        WorkingSet net = new WorkingSet();
+        boolean complete = loadInOrder(timestamps(run), timestamp -> Optional.ofNullable(readCommitFile(timestamp)), commit -> {
+            if (commit.isPresent()) {
+                net.addAll(commit.get().blockChanges);
+            }
+        });
+        if (!complete) {
+            GitGudPlugin.LOGGER.atWarning().log("Skipped squashing commits up to " + newest.timestamp + ": a commit could not be read.");
+            return null;
+        }
+        ChangeBuffer changes = net.drain();
+        changes.sortByTimestamp();
+        String message = newest.message + " (squashed " + run.size() + " commits)";
+        Commit squashed = new Commit(message, changes, newest.timestamp, oldest.parentCommit);
+
+        Path commitFile = commitsPath.resolve(newest.timestamp + CommitCodec.COMMIT_EXTENSION);
+        Path tempPath = commitFile.resolveSibling(commitFile.getFileName() + ".tmp");
         try {
-            return Files.list(STASH_PATH).count();
+            CommitCodec.writeCommit(tempPath, squashed, commitCompression());
         } catch (IOException e) {
-            GitGudPlugin.LOGGER.atWarning().log("Failed to count stash files: " + e.getMessage());
+            GitGudPlugin.LOGGER.atWarning().log("Failed to write squashed commit " + newest.timestamp + ": " + e.getMessage());
+            return null;
+        }
+
+        CommitInfo info = new CommitInfo(message, newest.timestamp, oldest.parentCommit, changes.size());
+        synchronized (historyLock) {
+            try {
+                if (!runUnchanged(run)) {
+                    Files.deleteIfExists(tempPath);
+                    GitGudPlugin.LOGGER.atInfo().log("Skipped squashing commits up to " + newest.timestamp + ": history changed meanwhile.");
+                    return null;
+                }
+                // the packed copy is read first, so it has to go before the loose file takes over
+                packs.remove(newest.timestamp);
+                Files.move(tempPath, commitFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                commitIndex.replace(timestamps(run), info);
+                for (CommitInfo member : run) {
+                    commitCache.remove(worldName, member.timestamp);
+                    spatialIndex.remove(member.timestamp);
+                    if (member != newest) {
+                        packs.remove(member.timestamp);
+                        Files.deleteIfExists(commitsPath.resolve(member.timestamp + CommitCodec.COMMIT_EXTENSION));
+                        Files.deleteIfExists(commitsPath.resolve(member.timestamp + CommitCodec.LEGACY_EXTENSION));
+                    }
+                }
+                Files.deleteIfExists(commitsPath.resolve(newest.timestamp + CommitCodec.LEGACY_EXTENSION));
+                spatialIndex.add(newest.timestamp, changes);
+            } catch (IOException e) {
+                // the index no longer matches the files and is rebuilt on the next start
+                GitGudPlugin.LOGGER.atWarning().log("Failed to swap in squashed commit " + newest.timestamp + ": " + e.getMessage());
+                return null;
+            }
+        }
+        GitGudPlugin.LOGGER.atInfo().log("Squashed " + run.size() + " commits into " + newest.timestamp + " with "
+                + changes.size() + " changes.");
+        return info;
+    }
+
+    // every commit of the run is still in history, and none but the newest became a boundary while it was squashed
+    private boolean runUnchanged(List<CommitInfo> run) {
+        Set<Long> boundaries = squashBoundaries();
+        for (int i = 0; i < run.size(); i++) {
+            long timestamp = run.get(i).timestamp;
+            if (!commitIndex.contains(timestamp) || (i < run.size() - 1 && boundaries.contains(timestamp))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] readLooseCommitBytes(long timestamp) throws IOException {
+        Path commitFile = commitsPath.resolve(timestamp + CommitCodec.COMMIT_EXTENSION);
+        if (Files.exists(commitFile)) {
+            return Files.readAllBytes(commitFile);
+        }
+        // json commits are converted to the binary format on the way into the pack
+        Commit commit = readCommitFile(timestamp);
+        if (commit == null) {
+            throw new IOException("Commit " + timestamp + " could not be read");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CommitCodec.writeCommit(bytes, commit, commitCompression());
+        return bytes.toByteArray();
+    }
+
+    private static long looseCommitTimestamp(Path file) {
+        String fileName = file.getFileName().toString();
+        String name;
+        if (fileName.endsWith(CommitCodec.COMMIT_EXTENSION)) {
+            name = fileName.substring(0, fileName.length() - CommitCodec.COMMIT_EXTENSION.length());
+        } else if (fileName.endsWith(CommitCodec.LEGACY_EXTENSION)) {
+            name = fileName.substring(0, fileName.length() - CommitCodec.LEGACY_EXTENSION.length());
+        } else {
+            return 0;
+        }
+        try {
+            return Long.parseLong(name);
+        } catch (NumberFormatException e) {
             return 0;
         }
     }
 
-    public static long getCommitCount() {
-        return getCommitHistory().size();
+    public int getPackedCommitCount() {
+        return packs.count();
+    }
+
+    public long getJournalRecordCount() {
+        return journal.getRecordCount();
+    }
+
+    public long getJournalSizeBytes() {
+        return journal.getSizeBytes();
+    }
+
+    public int getUnjournaledChangeCount() {
+        return blockChanges.unjournaledCount();
+    }
+
+    public long getCommitCount() {
+        return stats.getCommitCount();
+    }
+
+    public long getTotalCommittedChanges() {
+        return stats.getTotalChanges();
+    }
+
+    public long getCommitStorageBytes() {
+        return stats.getCommitBytes();
+    }
+
+    public int getUncommittedChangeCount() {
+        return blockChanges.size();
     }
 
     public static String serializeJson(Object obj) {
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        return gson.toJson(obj);
+        return PRETTY_GSON.toJson(obj);
     }
 
     public static <T> T deserializeJson(String json, Class<T> clazz) {
-        Gson gson = new Gson();
-        return gson.fromJson(json, clazz);
+        return GSON.fromJson(json, clazz);
+    }
+
+    private static BlockChange deserializeBlockChange(JsonElement json, Type type, JsonDeserializationContext context) {
+        JsonObject object = json.getAsJsonObject();
+        Vector3i position = context.deserialize(object.get("position"), Vector3i.class);
+        String oldBlockId = object.get("oldBlockId").getAsString();
+        String newBlockId = object.get("newBlockId").getAsString();
+        return new BlockChange(position, oldBlockId, newBlockId, object.get("timestamp").getAsLong());
+    }
+
+    private static ChangeBuffer deserializeChangeBuffer(JsonElement json, Type type, JsonDeserializationContext context) {
+        ChangeBuffer changes = new ChangeBuffer();
+        for (JsonElement element : json.getAsJsonArray()) {
+            changes.add((BlockChange) context.deserialize(element, BlockChange.class));
+        }
+        return changes;
+    }
+
+    private static void savePalette() {
+        try {
+            BlockPalette.save();
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to save block palette: " + e.getMessage());
+        }
     }
 
     public static byte[] gzipCompress(byte[] data) {
@@ -0,0 +1,44 @@
+package org.mattseq.gitgud.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import org.mattseq.gitgud.trackers.ApplyBatch;
+
+/**
+ * Reports progress of a queued world edit batch back to the sender of the command that started it.
+ * Progress is only sent every quarter so large batches do not flood the chat.
+ */
+public class BatchProgressReporter implements ApplyBatch.Listener {
+    private final CommandContext commandContext;
+    private int lastReportedQuarter;
+
+    private BatchProgressReporter(CommandContext commandContext) {
+        this.commandContext = commandContext;
+    }
+
+    public static void attach(CommandContext commandContext, ApplyBatch batch) {
+        if (batch == null || batch.size() == 0) {
+            return;
+        }
+        commandContext.sendMessage(Message.raw("Applying " + batch.size() + " block changes (batch #" + batch.getId() + ", /gitgud cancel to stop)."));
+        batch.addListener(new BatchProgressReporter(commandContext));
+    }
+
+    @Override
+    public void onProgress(ApplyBatch batch) {
+        int quarter = (int) (4L * batch.getApplied() / batch.size());
+        if (quarter > lastReportedQuarter && quarter < 4) {
+            lastReportedQuarter = quarter;
+            commandContext.sendMessage(Message.raw("Batch #" + batch.getId() + ": " + batch.getApplied() + "/" + batch.size() + " blocks applied."));
+        }
+    }
+
+    @Override
+    public void onComplete(ApplyBatch batch) {
+        if (batch.isCancelled()) {
+            commandContext.sendMessage(Message.raw("Batch #" + batch.getId() + " cancelled after " + batch.getApplied() + "/" + batch.size() + " blocks."));
+        } else {
+            commandContext.sendMessage(Message.raw("Batch #" + batch.getId() + " done: " + batch.getApplied() + " blocks applied."));
+        }
+    }
+}
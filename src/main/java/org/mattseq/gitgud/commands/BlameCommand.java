@@ -0,0 +1,60 @@
+package org.mattseq.gitgud.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
+import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
+import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.dto.BlameEntry;
+
+import java.util.List;
+
+public class BlameCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
+    private final RequiredArg<Integer> xArg;
+    private final RequiredArg<Integer> yArg;
+    private final RequiredArg<Integer> zArg;
+    private final DefaultArg<Integer> limitArg;
+
+    public BlameCommand() {
+        super("blame", "Shows which commits last changed a block. Usage: /gitgud blame <x> <y> <z>");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
+        this.xArg = this.withRequiredArg("x", "Block x coordinate", ArgTypes.INTEGER);
+        this.yArg = this.withRequiredArg("y", "Block y coordinate", ArgTypes.INTEGER);
+        this.zArg = this.withRequiredArg("z", "Block z coordinate", ArgTypes.INTEGER);
+        this.limitArg = this.withDefaultArg("limit", "How many changes to show", ArgTypes.INTEGER, 5, "5");
+    }
+
+    @Override
+    protected void executeSync(@NonNullDecl CommandContext commandContext) {
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        int x = this.xArg.get(commandContext);
+        int y = this.yArg.get(commandContext);
+        int z = this.zArg.get(commandContext);
+        List<BlameEntry> entries = repository.blame(x, y, z, this.limitArg.get(commandContext));
+        if (entries.isEmpty()) {
+            commandContext.sendMessage(Message.raw("No recorded changes at " + x + " " + y + " " + z + "."));
+            return;
+        }
+
+        commandContext.sendMessage(Message.raw("Blame for " + x + " " + y + " " + z + ":"));
+        for (BlameEntry entry : entries) {
+            String change = entry.change.getOldBlockId() + " -> " + entry.change.getNewBlockId();
+            if (entry.commitTimestamp == 0) {
+                commandContext.sendMessage(Message.raw("- uncommitted: " + change));
+            } else {
+                commandContext.sendMessage(Message.raw("- " + entry.commitTimestamp + ": " + entry.commitMessage + " (" + change + ")"));
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.mattseq.gitgud.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
+import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.trackers.ApplyBatch;
+import org.mattseq.gitgud.trackers.WorldEditApplySystem;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+public class CancelCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
+
+    public CancelCommand() {
+        super("cancel", "Cancels block changes that are still being applied to the world");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
+    }
+
+    @Override
+    protected void executeSync(@Nonnull CommandContext commandContext) {
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        List<ApplyBatch> batches = WorldEditApplySystem.getPendingBatches(repository.getWorldName());
+        if (batches.isEmpty()) {
+            commandContext.sendMessage(Message.raw("Nothing is being applied."));
+            return;
+        }
+        for (ApplyBatch batch : batches) {
+            batch.cancel();
+            commandContext.sendMessage(Message.raw("Cancelled batch #" + batch.getId() + " (" + batch.getDescription() + "), "
+                    + batch.getRemaining() + " blocks not applied."));
+        }
+        commandContext.sendMessage(Message.raw("Warning: the world may no longer match CURRENT. Checkout again to resync."));
+    }
+}
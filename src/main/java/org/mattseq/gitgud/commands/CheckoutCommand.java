@@ -2,33 +2,58 @@ package org.mattseq.gitgud.commands;
 
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
 import com.hypixel.hytale.server.core.command.system.arguments.system.FlagArg;
 import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
 import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
 import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.dto.Region;
 import org.mattseq.gitgud.dto.Tag;
 
 public class CheckoutCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
     private final RequiredArg<String> commitArg;
     private final FlagArg tagFlag;
+    private final DefaultArg<String> regionArg;
 
     public CheckoutCommand() {
         super("checkout", "Checks out a specific commit or tag. Usage: /checkout <commit index>");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
         this.commitArg = this.withRequiredArg("commit", "index/pointer/tag", ArgTypes.STRING);
         this.tagFlag = this.withFlagArg("tag", "Indicates that the provided index is a tag name instead of a commit index");
+        this.regionArg = this.withDefaultArg("region", RegionArgument.DESCRIPTION, ArgTypes.STRING, "", "Whole world");
     }
 
     @Override
     protected void executeSync(@NonNullDecl CommandContext commandContext) {
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        Region region;
+        try {
+            region = RegionArgument.parse(this.regionArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
         // if tag flag is set, find tag by name and checkout commit it points to, otherwise checkout commit by index
         if (this.tagFlag.get(commandContext)) {
             try {
-                Tag tag = Repository.getTag(this.commitArg.get(commandContext));
+                Tag tag = repository.getTag(this.commitArg.get(commandContext));
                 assert tag != null;
-                Repository.ActionResult result = Repository.checkoutCommit(Repository.getCommitByTimestamp(tag.commitId));
+                Repository.ActionResult result = region == null
+                        ? repository.checkoutTimestamp(tag.commitId)
+                        : repository.checkoutRegion(tag.commitId, region);
                 commandContext.sendMessage(Message.raw(result.message));
+                BatchProgressReporter.attach(commandContext, result.batch);
             } catch (Exception e) {
                 commandContext.sendMessage(Message.raw("Tag not found: " + this.commitArg.get(commandContext)));
             }
@@ -41,13 +66,16 @@ public class CheckoutCommand extends CommandBase {
                 if (this.commitArg.get(commandContext).equals("HEAD")) {
                     commitIndex = 0;
                 } else if (this.commitArg.get(commandContext).equals("TAIL")) {
-                    commitIndex = Repository.getCommitHistory().size() - 1;
+                    commitIndex = (int) repository.getCommitCount() - 1;
                 } else {
                     commandContext.sendMessage(Message.raw("Invalid commit index: " + this.commitArg.get(commandContext)));
                 }
             }
-            Repository.ActionResult result = Repository.checkoutCommit(commitIndex);
+            Repository.ActionResult result = region == null
+                    ? repository.checkoutCommit(commitIndex)
+                    : repository.checkoutCommit(commitIndex, region);
             commandContext.sendMessage(Message.raw(result.message));
+            BatchProgressReporter.attach(commandContext, result.batch);
         }
     }
 }
@@ -2,6 +2,7 @@ package org.mattseq.gitgud.commands;
 
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
 import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
@@ -10,15 +11,25 @@ import org.mattseq.gitgud.Repository;
 import javax.annotation.Nonnull;
 
 public class CommitCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
     private final RequiredArg<String> messageArg;
     public CommitCommand() {
         super("commit", "Commits changes to the repository");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
         this.messageArg = this.withRequiredArg("message", "The commit message", ArgTypes.STRING);
     }
 
     @Override
     protected void executeSync(@Nonnull CommandContext commandContext) {
-        Repository.ActionResult result = Repository.saveCommit(this.messageArg.get(commandContext));
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        Repository.ActionResult result = repository.saveCommit(this.messageArg.get(commandContext));
         commandContext.sendMessage(Message.raw(result.message));
     }
 }
@@ -0,0 +1,33 @@
+package org.mattseq.gitgud.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
+import org.mattseq.gitgud.Repository;
+
+import javax.annotation.Nonnull;
+
+public class CompressionCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
+
+    public CompressionCommand() {
+        super("compression", "Compares commit compression codecs on the HEAD commit");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
+    }
+
+    @Override
+    protected void executeSync(@Nonnull CommandContext commandContext) {
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        commandContext.sendMessage(Message.raw("Encoding the HEAD commit with each codec in the background..."));
+        repository.compareCompressionInBackground().thenAccept(result -> commandContext.sendMessage(Message.raw(result.message)));
+    }
+}
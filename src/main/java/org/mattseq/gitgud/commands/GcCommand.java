@@ -0,0 +1,33 @@
+package org.mattseq.gitgud.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
+import org.mattseq.gitgud.Repository;
+
+import javax.annotation.Nonnull;
+
+public class GcCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
+
+    public GcCommand() {
+        super("gc", "Squashes runs of old commits into one commit each, in the background");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
+    }
+
+    @Override
+    protected void executeSync(@Nonnull CommandContext commandContext) {
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        commandContext.sendMessage(Message.raw("Squashing old commits in the background..."));
+        repository.collectGarbageInBackground().thenAccept(result -> commandContext.sendMessage(Message.raw(result.message)));
+    }
+}
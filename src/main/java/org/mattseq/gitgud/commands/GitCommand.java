@@ -18,6 +18,14 @@ public class GitCommand extends CommandBase {
         this.addSubCommand(new LogCommand());
         this.addSubCommand(new TagCommand());
         this.addSubCommand(new CheckoutCommand());
+        this.addSubCommand(new CancelCommand());
+        this.addSubCommand(new BlameCommand());
+        this.addSubCommand(new HistoryCommand());
+        this.addSubCommand(new PackCommand());
+        this.addSubCommand(new GcCommand());
+        this.addSubCommand(new CompressionCommand());
+        this.addSubCommand(new ReflogCommand());
+        this.addSubCommand(new MetricsCommand());
         GitGudPlugin.LOGGER.atInfo().log("Registered gitgud command");
     }
 
@@ -11,16 +11,26 @@ public class HelpCommand extends CommandBase {
     @Override
     protected void executeSync(@javax.annotation.Nonnull com.hypixel.hytale.server.core.command.system.CommandContext commandContext) {
         commandContext.sendMessage(Message.raw("GitGud Command Help:"));
-        commandContext.sendMessage(Message.raw("/gitgud status - Show commits, unstashed changes, and stash count"));
-        commandContext.sendMessage(Message.raw("/gitgud log - Show commit history (CURRENT is marked with <-- )"));
+        commandContext.sendMessage(Message.raw("/gitgud status - Show commits, uncommitted changes, and journal size"));
+        commandContext.sendMessage(Message.raw("/gitgud log [--page <n>] [--limit <n>] - Show commit history a page at a time (CURRENT is marked with <-- )"));
+        commandContext.sendMessage(Message.raw("/gitgud blame <x> <y> <z> [--limit <n>] - Show which commits last changed a block"));
+        commandContext.sendMessage(Message.raw("/gitgud history <x1> <y1> <z1> <x2> <y2> <z2> [--limit <n>] - Show commits that changed a region"));
         commandContext.sendMessage(Message.raw("/gitgud commit <message> - Save new changes as a commit"));
-        commandContext.sendMessage(Message.raw("/gitgud rollback - Revert uncommitted changes only"));
-        commandContext.sendMessage(Message.raw("/gitgud revert - Revert and delete the latest commit"));
-        commandContext.sendMessage(Message.raw("/gitgud stash - Manually stash in-memory block changes"));
+        commandContext.sendMessage(Message.raw("/gitgud rollback [--region <box>] - Revert uncommitted changes only"));
+        commandContext.sendMessage(Message.raw("/gitgud revert [--region <box>] - Revert and delete the latest commit, or only undo it inside a region"));
+        commandContext.sendMessage(Message.raw("/gitgud stash - Manually write in-memory block changes to the journal"));
+        commandContext.sendMessage(Message.raw("/gitgud pack - Move loose commit files into pack files in the background"));
+        commandContext.sendMessage(Message.raw("/gitgud gc - Squash runs of old commits in the background, keeping tagged ones"));
+        commandContext.sendMessage(Message.raw("/gitgud compression - Compare commit size and encode time for each compression codec"));
         commandContext.sendMessage(Message.raw("/gitgud tag add <name> [--desc <description>] - Add a tag to HEAD"));
         commandContext.sendMessage(Message.raw("/gitgud tag del <name> - Delete a tag"));
         commandContext.sendMessage(Message.raw("/gitgud tag list - List all tags"));
-        commandContext.sendMessage(Message.raw("/gitgud checkout <index|HEAD|TAIL> [--tag] - Checkout by index, pointer, or tag"));
+        commandContext.sendMessage(Message.raw("/gitgud checkout <index|HEAD|TAIL> [--tag] [--region <box>] - Checkout by index, pointer, or tag"));
+        commandContext.sendMessage(Message.raw("<box> is \"x1 y1 z1 x2 y2 z2\"; region operations leave their result as uncommitted changes"));
+        commandContext.sendMessage(Message.raw("/gitgud cancel - Stop block changes that are still being applied"));
+        commandContext.sendMessage(Message.raw("/gitgud reflog [--limit <n>] - Show recent moves of HEAD, CURRENT and tags"));
+        commandContext.sendMessage(Message.raw("/gitgud metrics - Show event rates, queue depths and latencies"));
+        commandContext.sendMessage(Message.raw("Every command but metrics takes --world <name> to act on that world's history instead of the default world's"));
         commandContext.sendMessage(Message.raw("/gitgud help - Show this help information"));
     }
 }
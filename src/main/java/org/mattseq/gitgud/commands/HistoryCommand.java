@@ -0,0 +1,64 @@
+package org.mattseq.gitgud.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
+import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
+import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.dto.Region;
+import org.mattseq.gitgud.dto.RegionHistoryEntry;
+
+import java.util.List;
+
+public class HistoryCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
+    private final RequiredArg<Integer> x1Arg;
+    private final RequiredArg<Integer> y1Arg;
+    private final RequiredArg<Integer> z1Arg;
+    private final RequiredArg<Integer> x2Arg;
+    private final RequiredArg<Integer> y2Arg;
+    private final RequiredArg<Integer> z2Arg;
+    private final DefaultArg<Integer> limitArg;
+
+    public HistoryCommand() {
+        super("history", "Shows the commits that changed a region. Usage: /gitgud history <x1> <y1> <z1> <x2> <y2> <z2>");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
+        this.x1Arg = this.withRequiredArg("x1", "First corner x", ArgTypes.INTEGER);
+        this.y1Arg = this.withRequiredArg("y1", "First corner y", ArgTypes.INTEGER);
+        this.z1Arg = this.withRequiredArg("z1", "First corner z", ArgTypes.INTEGER);
+        this.x2Arg = this.withRequiredArg("x2", "Second corner x", ArgTypes.INTEGER);
+        this.y2Arg = this.withRequiredArg("y2", "Second corner y", ArgTypes.INTEGER);
+        this.z2Arg = this.withRequiredArg("z2", "Second corner z", ArgTypes.INTEGER);
+        this.limitArg = this.withDefaultArg("limit", "How many commits to show", ArgTypes.INTEGER, 10, "10");
+    }
+
+    @Override
+    protected void executeSync(@NonNullDecl CommandContext commandContext) {
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        Region region = new Region(
+                this.x1Arg.get(commandContext), this.y1Arg.get(commandContext), this.z1Arg.get(commandContext),
+                this.x2Arg.get(commandContext), this.y2Arg.get(commandContext), this.z2Arg.get(commandContext));
+        List<RegionHistoryEntry> history = repository.getRegionHistory(region, this.limitArg.get(commandContext));
+        if (history.isEmpty()) {
+            commandContext.sendMessage(Message.raw("No commits changed this region."));
+            return;
+        }
+
+        commandContext.sendMessage(Message.raw("Region History:"));
+        long currentTimestamp = repository.getCurrentTimestamp();
+        for (RegionHistoryEntry entry : history) {
+            String line = "- " + entry.commit.timestamp + ": " + entry.commit.message + " (" + entry.changesInRegion + " blocks)";
+            commandContext.sendMessage(Message.raw(entry.commit.timestamp == currentTimestamp ? line + " <--" : line));
+        }
+    }
+}
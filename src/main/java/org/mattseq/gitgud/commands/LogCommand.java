@@ -2,25 +2,65 @@ package org.mattseq.gitgud.commands;
 
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
 import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
 import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.dto.CommitInfo;
+
+import java.util.List;
 
 public class LogCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
+    private final DefaultArg<Integer> pageArg;
+    private final DefaultArg<Integer> limitArg;
+
     public LogCommand() {
         super("log", "Shows the commit history");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
+        this.pageArg = this.withDefaultArg("page", "Which page of history to show, starting at 1 for the newest", ArgTypes.INTEGER, 1, "1");
+        this.limitArg = this.withDefaultArg("limit", "How many commits to show per page", ArgTypes.INTEGER, 10, "10");
     }
 
     @Override
     protected void executeSync(@NonNullDecl CommandContext commandContext) {
-        commandContext.sendMessage(Message.raw("Commit History:"));
-        long currentTimestamp = Repository.getCurrentTimestamp();
-        Repository.getCommitHistory().forEach(commit -> {
-            if (commit.timestamp == currentTimestamp) {
-                commandContext.sendMessage(Message.raw("- " + commit.timestamp + ": " + commit.message + " <--"));
-            } else {
-                commandContext.sendMessage(Message.raw("- " + commit.timestamp + ": " + commit.message));
-            }
-        });
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        int page = this.pageArg.get(commandContext);
+        int limit = this.limitArg.get(commandContext);
+        if (page < 1 || limit < 1) {
+            commandContext.sendMessage(Message.raw("Page and limit must be at least 1."));
+            return;
+        }
+
+        // one extra commit tells whether there is an older page
+        int skip = (int) Math.min((long) (page - 1) * limit, Integer.MAX_VALUE);
+        List<CommitInfo> commits = repository.getCommitInfoHistory(skip, limit + 1);
+        if (commits.isEmpty()) {
+            commandContext.sendMessage(Message.raw(page == 1 ? "No commits yet." : "No commits on page " + page + "."));
+            return;
+        }
+        boolean hasOlder = commits.size() > limit;
+        if (hasOlder) {
+            commits = commits.subList(0, limit);
+        }
+
+        commandContext.sendMessage(Message.raw("Commit History (page " + page + "):"));
+        long currentTimestamp = repository.getCurrentTimestamp();
+        for (int i = 0; i < commits.size(); i++) {
+            CommitInfo commit = commits.get(i);
+            String line = "- [" + (skip + i) + "] " + commit.timestamp + ": " + commit.message + " (" + commit.changeCount + " changes)";
+            commandContext.sendMessage(Message.raw(commit.timestamp == currentTimestamp ? line + " <--" : line));
+        }
+        if (hasOlder) {
+            commandContext.sendMessage(Message.raw("Older commits: /gitgud log --page " + (page + 1) + (limit != 10 ? " --limit " + limit : "")));
+        }
     }
 }
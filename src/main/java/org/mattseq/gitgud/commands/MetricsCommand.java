@@ -0,0 +1,43 @@
+package org.mattseq.gitgud.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
+import org.mattseq.gitgud.dto.MetricsReport;
+import org.mattseq.gitgud.metrics.Metrics;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+
+public class MetricsCommand extends CommandBase {
+    public MetricsCommand() {
+        super("metrics", "Shows counters, queue depths and latencies for tracking, persistence and applying");
+    }
+
+    @Override
+    protected void executeSync(@Nonnull CommandContext commandContext) {
+        MetricsReport report = Metrics.report();
+        long seconds = Math.max(1, report.uptimeSeconds);
+        commandContext.sendMessage(Message.raw("Metrics over " + report.uptimeSeconds + " s (all worlds):"));
+        for (Map.Entry<String, Long> counter : report.counters.entrySet()) {
+            commandContext.sendMessage(Message.raw("- " + counter.getKey() + ": " + counter.getValue()
+                    + String.format(" (%.1f/s)", counter.getValue() / (double) seconds)));
+        }
+        for (Map.Entry<String, Long> gauge : report.gauges.entrySet()) {
+            commandContext.sendMessage(Message.raw("- " + gauge.getKey() + ": " + gauge.getValue()));
+        }
+        commandContext.sendMessage(Message.raw("Latencies in microseconds (count, mean, p50, p99, max):"));
+        for (Map.Entry<String, MetricsReport.Latency> entry : report.latencies.entrySet()) {
+            MetricsReport.Latency latency = entry.getValue();
+            if (latency.count == 0) {
+                continue;
+            }
+            commandContext.sendMessage(Message.raw("- " + entry.getKey() + ": " + latency.count + ", " + micros(latency.meanNanos)
+                    + ", " + micros(latency.p50Nanos) + ", " + micros(latency.p99Nanos) + ", " + micros(latency.maxNanos)));
+        }
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+}
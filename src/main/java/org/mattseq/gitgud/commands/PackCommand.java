@@ -0,0 +1,33 @@
+package org.mattseq.gitgud.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
+import org.mattseq.gitgud.Repository;
+
+import javax.annotation.Nonnull;
+
+public class PackCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
+
+    public PackCommand() {
+        super("pack", "Packs loose commit files into memory-mapped pack files");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
+    }
+
+    @Override
+    protected void executeSync(@Nonnull CommandContext commandContext) {
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        commandContext.sendMessage(Message.raw("Packing loose commits in the background..."));
+        repository.packCommitsInBackground().thenAccept(result -> commandContext.sendMessage(Message.raw(result.message)));
+    }
+}
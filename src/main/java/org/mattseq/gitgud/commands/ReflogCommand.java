@@ -0,0 +1,44 @@
+package org.mattseq.gitgud.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
+import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
+import org.mattseq.gitgud.Repository;
+
+import java.util.List;
+
+public class ReflogCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
+    private final DefaultArg<Integer> limitArg;
+
+    public ReflogCommand() {
+        super("reflog", "Shows recent moves of HEAD, CURRENT and tags, newest first");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
+        this.limitArg = this.withDefaultArg("limit", "How many entries to show", ArgTypes.INTEGER, 10, "10");
+    }
+
+    @Override
+    protected void executeSync(@NonNullDecl CommandContext commandContext) {
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        List<String> entries = repository.getReflog(this.limitArg.get(commandContext));
+        if (entries.isEmpty()) {
+            commandContext.sendMessage(Message.raw("The reflog is empty."));
+            return;
+        }
+
+        commandContext.sendMessage(Message.raw("Reflog (time, ref, old, new, reason):"));
+        for (String entry : entries) {
+            commandContext.sendMessage(Message.raw("- " + entry));
+        }
+    }
+}
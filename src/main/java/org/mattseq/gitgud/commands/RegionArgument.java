@@ -0,0 +1,38 @@
+package org.mattseq.gitgud.commands;
+
+import org.mattseq.gitgud.dto.Region;
+
+/**
+ * Parses the --region option of checkout, revert and rollback. The box is given as one argument holding six
+ * coordinates, separated by spaces (quoted) or commas: {@code --region "x1 y1 z1 x2 y2 z2"}.
+ */
+final class RegionArgument {
+    static final String DESCRIPTION = "Only act inside the box \"x1 y1 z1 x2 y2 z2\"";
+
+    private RegionArgument() {
+    }
+
+    /**
+     * Returns the region, or null if the option was left empty.
+     *
+     * @throws IllegalArgumentException if the value is not six whole numbers
+     */
+    static Region parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String[] parts = value.trim().split("[\\s,]+");
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("Region needs 6 coordinates (x1 y1 z1 x2 y2 z2), got " + parts.length + ".");
+        }
+        int[] coordinates = new int[6];
+        for (int i = 0; i < 6; i++) {
+            try {
+                coordinates[i] = Integer.parseInt(parts[i]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid region coordinate: " + parts[i]);
+            }
+        }
+        return new Region(coordinates[0], coordinates[1], coordinates[2], coordinates[3], coordinates[4], coordinates[5]);
+    }
+}
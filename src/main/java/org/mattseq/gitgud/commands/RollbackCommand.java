@@ -2,20 +2,43 @@ package org.mattseq.gitgud.commands;
 
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
 import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.dto.Region;
 
 import javax.annotation.Nonnull;
 
 public class RollbackCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
+    private final DefaultArg<String> regionArg;
 
     public RollbackCommand() {
         super("rollback", "Rolls back the world to the last commit");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
+        this.regionArg = this.withDefaultArg("region", RegionArgument.DESCRIPTION, ArgTypes.STRING, "", "Whole world");
     }
 
     @Override
     protected void executeSync(@Nonnull CommandContext commandContext) {
-        Repository.ActionResult result = Repository.rollback();
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        Region region;
+        try {
+            region = RegionArgument.parse(this.regionArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+        Repository.ActionResult result = region == null ? repository.rollback() : repository.rollback(region);
         commandContext.sendMessage(Message.raw(result.message));
+        BatchProgressReporter.attach(commandContext, result.batch);
     }
 }
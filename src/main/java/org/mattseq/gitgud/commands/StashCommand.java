@@ -1,18 +1,31 @@
 package org.mattseq.gitgud.commands;
 
+import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
 import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
 import org.mattseq.gitgud.Repository;
 
 public class StashCommand extends CommandBase {
-    public StashCommand() {
-        super("stash", "Manually stashes changes without committing to prevent memory issues. You shouldn't need to use this command, it's purely for testing.");
+    private final DefaultArg<String> worldArg;
 
+    public StashCommand() {
+        super("stash", "Manually writes in-memory changes to the journal. You shouldn't need to use this command, it's purely for testing.");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
     }
 
     @Override
     protected void executeSync(@NonNullDecl CommandContext commandContext) {
-        Repository.stashBlockChanges();
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        repository.flushJournal();
     }
 }
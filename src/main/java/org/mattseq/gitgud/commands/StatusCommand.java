@@ -2,21 +2,56 @@ package org.mattseq.gitgud.commands;
 
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
 import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.trackers.WorldEditApplySystem;
 
 import javax.annotation.Nonnull;
 
 public class StatusCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
+
     public StatusCommand() {
         super("status", "Shows the current status of the repository");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
     }
 
     @Override
     protected void executeSync(@Nonnull CommandContext commandContext) {
-        commandContext.sendMessage(Message.raw("Current Repository Status:"));
-        commandContext.sendMessage(Message.raw(Repository.getCommitCount() + " commits in repository"));
-        commandContext.sendMessage(Message.raw("Changes since last stash: " + Repository.getBlockChanges().size()));
-        commandContext.sendMessage(Message.raw("Stashes: " + Repository.getStashCount()));
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        long headTimestamp = repository.getHeadTimestamp();
+        long currentTimestamp = repository.getCurrentTimestamp();
+        commandContext.sendMessage(Message.raw("Repository status for world " + repository.getWorldName() + ":"));
+        commandContext.sendMessage(Message.raw("HEAD " + headTimestamp + ", CURRENT " + currentTimestamp
+                + (headTimestamp != currentTimestamp ? " (detached)" : "")));
+        commandContext.sendMessage(Message.raw(repository.getCommitCount() + " commits in repository, "
+                + repository.getTotalCommittedChanges() + " block changes in total"));
+        commandContext.sendMessage(Message.raw("Commit storage: " + formatBytes(repository.getCommitStorageBytes())
+                + " (" + repository.getPackedCommitCount() + " commits packed)"));
+        commandContext.sendMessage(Message.raw("Uncommitted changes: " + repository.getUncommittedChangeCount()
+                + " (" + repository.getUnjournaledChangeCount() + " not yet journaled)"));
+        commandContext.sendMessage(Message.raw("Journal: " + repository.getJournalRecordCount() + " records, "
+                + formatBytes(repository.getJournalSizeBytes())));
+        commandContext.sendMessage(Message.raw("Apply queue: " + WorldEditApplySystem.getPendingEditCount(repository.getWorldName()) + " block edits in "
+                + WorldEditApplySystem.getPendingBatches(repository.getWorldName()).size() + " batches"));
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
     }
 }
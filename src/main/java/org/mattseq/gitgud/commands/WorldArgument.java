@@ -0,0 +1,34 @@
+package org.mattseq.gitgud.commands;
+
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import org.mattseq.gitgud.Repository;
+
+/**
+ * Resolves the --world option every command takes to pick whose history it works on. Left empty, it means the default
+ * world.
+ */
+public final class WorldArgument {
+    public static final String DESCRIPTION = "The world whose history to use";
+    public static final String DEFAULT_DESCRIPTION = "Default world";
+
+    private WorldArgument() {
+    }
+
+    /**
+     * Returns the repository of the named world, or of the default world if the option was left empty.
+     *
+     * @throws IllegalArgumentException if no such world is loaded
+     */
+    public static Repository repository(String value) {
+        World world = value == null || value.isBlank()
+                ? Universe.get().getDefaultWorld()
+                : Universe.get().getWorld(value.trim());
+        if (world == null) {
+            throw new IllegalArgumentException(value == null || value.isBlank()
+                    ? "No default world is loaded. Pass --world <name>."
+                    : "No loaded world named " + value.trim() + ".");
+        }
+        return Repository.forWorld(world);
+    }
+}
@@ -8,13 +8,16 @@ import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
 import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
 import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.commands.WorldArgument;
 
 public class TagAddCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
     private final RequiredArg<String> nameArg;
     private final DefaultArg<String> descriptionArg;
 
     public TagAddCommand() {
         super("add", "Adds tag to the current commit with a name and description");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
 
         this.nameArg = this.withRequiredArg("name", "The tag name", ArgTypes.STRING);
         this.descriptionArg = this.withDefaultArg("desc", "The tag description", ArgTypes.STRING, "", "No description provided");
@@ -22,7 +25,15 @@ public class TagAddCommand extends CommandBase {
 
     @Override
     protected void executeSync(@NonNullDecl CommandContext commandContext) {
-        Repository.ActionResult result = Repository.addTagToLatestCommit(this.nameArg.get(commandContext), this.descriptionArg.get(commandContext));
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        Repository.ActionResult result = repository.addTagToLatestCommit(this.nameArg.get(commandContext), this.descriptionArg.get(commandContext));
         commandContext.sendMessage(Message.raw(result.message));
     }
 }
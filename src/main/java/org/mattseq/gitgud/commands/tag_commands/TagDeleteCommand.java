@@ -2,24 +2,36 @@ package org.mattseq.gitgud.commands.tag_commands;
 
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
 import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
 import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
 import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.commands.WorldArgument;
 
 public class TagDeleteCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
     private final RequiredArg<String> tagArg;
 
     public TagDeleteCommand() {
         super("del", "Deletes a tag from the repository. This is irreversible, so be careful when using this command.");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
 
         this.tagArg = this.withRequiredArg("tag", "The name of the tag to delete", ArgTypes.STRING);
     }
 
     @Override
     protected void executeSync(@NonNullDecl CommandContext commandContext) {
-        Repository.ActionResult result = Repository.deleteTag(this.tagArg.get(commandContext));
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
+        Repository.ActionResult result = repository.deleteTag(this.tagArg.get(commandContext));
         commandContext.sendMessage(Message.raw(result.message));
     }
 }
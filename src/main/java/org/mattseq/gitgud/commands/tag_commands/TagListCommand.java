@@ -2,19 +2,33 @@ package org.mattseq.gitgud.commands.tag_commands;
 
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.DefaultArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
 import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
 import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.commands.WorldArgument;
 
 public class TagListCommand extends CommandBase {
+    private final DefaultArg<String> worldArg;
+
     public TagListCommand() {
         super("list", "Lists all tags in the repository");
+        this.worldArg = this.withDefaultArg("world", WorldArgument.DESCRIPTION, ArgTypes.STRING, "", WorldArgument.DEFAULT_DESCRIPTION);
     }
 
     @Override
     protected void executeSync(@NonNullDecl CommandContext commandContext) {
+        Repository repository;
+        try {
+            repository = WorldArgument.repository(this.worldArg.get(commandContext));
+        } catch (IllegalArgumentException e) {
+            commandContext.sendMessage(Message.raw(e.getMessage()));
+            return;
+        }
+
         commandContext.sendMessage(Message.raw("Tags:"));
-        Repository.listTags().forEach(tag -> {
+        repository.listTags().forEach(tag -> {
             commandContext.sendMessage(Message.raw("- " + tag.name + " (" + tag.commitId + "): " + tag.description));
         });
     }
@@ -0,0 +1,14 @@
+package org.mattseq.gitgud.dto;
+
+public class BlameEntry {
+    // 0 when the change is not committed yet
+    public long commitTimestamp;
+    public String commitMessage;
+    public BlockChange change;
+
+    public BlameEntry(long commitTimestamp, String commitMessage, BlockChange change) {
+        this.commitTimestamp = commitTimestamp;
+        this.commitMessage = commitMessage;
+        this.change = change;
+    }
+}
@@ -1,18 +1,36 @@
 package org.mattseq.gitgud.dto;
 
 import com.hypixel.hytale.math.vector.Vector3i;
+import org.mattseq.gitgud.storage.BlockPalette;
 
 public class BlockChange {
     public Vector3i position;
-    public String oldBlockId;
-    public String newBlockId;
+    // indices into BlockPalette
+    public int oldBlock;
+    public int newBlock;
     public final long timestamp;
     // TODO: consider adding author info and block orientation (for relevant blocks, e.g. stairs)
 
     public BlockChange(Vector3i position, String oldBlockId, String newBlockId) {
+        this(position, BlockPalette.id(oldBlockId), BlockPalette.id(newBlockId), System.currentTimeMillis());
+    }
+
+    public BlockChange(Vector3i position, String oldBlockId, String newBlockId, long timestamp) {
+        this(position, BlockPalette.id(oldBlockId), BlockPalette.id(newBlockId), timestamp);
+    }
+
+    public BlockChange(Vector3i position, int oldBlock, int newBlock, long timestamp) {
         this.position = position;
-        this.oldBlockId = oldBlockId;
-        this.newBlockId = newBlockId;
-        this.timestamp = System.currentTimeMillis();
+        this.oldBlock = oldBlock;
+        this.newBlock = newBlock;
+        this.timestamp = timestamp;
+    }
+
+    public String getOldBlockId() {
+        return BlockPalette.name(oldBlock);
+    }
+
+    public String getNewBlockId() {
+        return BlockPalette.name(newBlock);
     }
 }
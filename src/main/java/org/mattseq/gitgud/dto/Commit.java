@@ -1,14 +1,14 @@
 package org.mattseq.gitgud.dto;
 
-import java.util.ArrayList;
+import org.mattseq.gitgud.storage.ChangeBuffer;
 
 public class Commit {
     public String message;
-    public ArrayList<BlockChange> blockChanges;
+    public ChangeBuffer blockChanges;
     public long timestamp;
     public long parentCommit;
 
-    public Commit(String message, ArrayList<BlockChange> blockChanges, long timestamp, long parentCommit) {
+    public Commit(String message, ChangeBuffer blockChanges, long timestamp, long parentCommit) {
         this.message = message;
         this.blockChanges = blockChanges;
         this.timestamp = timestamp;
@@ -0,0 +1,15 @@
+package org.mattseq.gitgud.dto;
+
+public class CommitInfo {
+    public String message;
+    public long timestamp;
+    public long parentCommit;
+    public int changeCount;
+
+    public CommitInfo(String message, long timestamp, long parentCommit, int changeCount) {
+        this.message = message;
+        this.timestamp = timestamp;
+        this.parentCommit = parentCommit;
+        this.changeCount = changeCount;
+    }
+}
@@ -0,0 +1,32 @@
+package org.mattseq.gitgud.dto;
+
+public class Config {
+    // upper bound on the number of block changes held by decoded commits in the commit cache
+    public int commitCacheMaxChanges = 500_000;
+    // world edits applied per server tick; whatever is left over carries to the next tick
+    public int applyMaxEditsPerTick = 4096;
+    // time budget for applying world edits in a single tick
+    public long applyMaxNanosPerTick = 5_000_000;
+    // keep every raw block event instead of one net change per position
+    public boolean keepEveryChange = false;
+    // new changes are written to the journal in the background once this many have piled up
+    public int journalFlushChanges = 32;
+    // size at which the journal starts a new segment file
+    public long journalSegmentBytes = 4L * 1024 * 1024;
+    // size at which the journal is folded into a single checkpoint of the working set
+    public long journalCompactBytes = 32L * 1024 * 1024;
+    // write a keyframe of every touched block after this many commits since the last one (0 disables, the default)
+    public int keyframeEveryCommits = 0;
+    // or after this many block changes since the last one (0 disables, the default)
+    public long keyframeEveryChanges = 0;
+    // how commit files are compressed: none, deflate, or dictionary (deflate primed with the block palette)
+    public String compression = "deflate";
+    // deflate level from 1 (fastest) to 9 (smallest), ignored for none
+    public int compressionLevel = 6;
+    // gc never squashes this many of the newest commits below HEAD
+    public int gcKeepRecentCommits = 100;
+    // run gc in the background after this many commits since the last run (0 disables)
+    public int gcEveryCommits = 0;
+    // write counters and latencies to .gitgud/metrics.json this often, in seconds (0 disables)
+    public int metricsWriteSeconds = 60;
+}
@@ -0,0 +1,23 @@
+package org.mattseq.gitgud.dto;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+public class MetricsReport {
+    public long timestamp;
+    public long uptimeSeconds;
+    // running totals since startup
+    public Map<String, Long> counters = new TreeMap<>();
+    // values read when the report was taken
+    public Map<String, Long> gauges = new TreeMap<>();
+    public Map<String, Latency> latencies = new TreeMap<>();
+
+    public static class Latency {
+        public long count;
+        public long meanNanos;
+        public long p50Nanos;
+        public long p99Nanos;
+        public long p999Nanos;
+        public long maxNanos;
+    }
+}
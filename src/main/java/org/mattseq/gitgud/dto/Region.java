@@ -0,0 +1,53 @@
+package org.mattseq.gitgud.dto;
+
+/**
+ * An axis-aligned box of blocks. Both corners are inclusive.
+ */
+public class Region {
+    public final int minX;
+    public final int minY;
+    public final int minZ;
+    public final int maxX;
+    public final int maxY;
+    public final int maxZ;
+
+    public Region(int x1, int y1, int z1, int x2, int y2, int z2) {
+        this.minX = Math.min(x1, x2);
+        this.minY = Math.min(y1, y2);
+        this.minZ = Math.min(z1, z2);
+        this.maxX = Math.max(x1, x2);
+        this.maxY = Math.max(y1, y2);
+        this.maxZ = Math.max(z1, z2);
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    public boolean contains(BlockChange change) {
+        return contains(change.position.x, change.position.y, change.position.z);
+    }
+
+    /**
+     * Whether this region shares at least one block with the box between the given corners (inclusive).
+     */
+    public boolean intersects(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return minX <= this.maxX && maxX >= this.minX
+                && minY <= this.maxY && maxY >= this.minY
+                && minZ <= this.maxZ && maxZ >= this.minZ;
+    }
+
+    /**
+     * Whether the box between the given corners (inclusive) lies completely inside this region.
+     */
+    public boolean encloses(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return minX >= this.minX && maxX <= this.maxX
+                && minY >= this.minY && maxY <= this.maxY
+                && minZ >= this.minZ && maxZ <= this.maxZ;
+    }
+
+    @Override
+    public String toString() {
+        return minX + " " + minY + " " + minZ + " to " + maxX + " " + maxY + " " + maxZ;
+    }
+}
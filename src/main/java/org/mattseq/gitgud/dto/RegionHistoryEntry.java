@@ -0,0 +1,11 @@
+package org.mattseq.gitgud.dto;
+
+public class RegionHistoryEntry {
+    public CommitInfo commit;
+    public int changesInRegion;
+
+    public RegionHistoryEntry(CommitInfo commit, int changesInRegion) {
+        this.commit = commit;
+        this.changesInRegion = changesInRegion;
+    }
+}
@@ -1,12 +1,12 @@
 package org.mattseq.gitgud.dto;
 
-import java.util.ArrayList;
+import org.mattseq.gitgud.storage.ChangeBuffer;
 
 public class Stash {
-    public ArrayList<BlockChange> blockChanges;
+    public ChangeBuffer blockChanges;
     public long timestamp;
 
-    public Stash(ArrayList<BlockChange> blockChanges, long timestamp) {
+    public Stash(ChangeBuffer blockChanges, long timestamp) {
         this.blockChanges = blockChanges;
         this.timestamp = timestamp;
     }
@@ -0,0 +1,123 @@
+package org.mattseq.gitgud.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.mattseq.gitgud.GitGudPlugin;
+import org.mattseq.gitgud.dto.MetricsReport;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, gauges and latency histograms, shared by everything that wants to report what it costs.
+ * <p>
+ * Counters and histograms are looked up once, usually into a static field, and updated with a few atomic adds, so they
+ * are cheap enough for the game thread. Gauges are read only when a report is taken. Reports are shown by
+ * {@code /gitgud metrics} and, while {@link #startWriting} is in effect, written to a JSON file for local tooling.
+ */
+public final class Metrics {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final long START_MILLIS = System.currentTimeMillis();
+
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService writer;
+    private static volatile Path reportPath;
+
+    private Metrics() {
+    }
+
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public static LatencyHistogram latency(String name) {
+        return latencies.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a value read every time a report is taken, replacing any gauge with the same name.
+     */
+    public static void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public static MetricsReport report() {
+        MetricsReport report = new MetricsReport();
+        report.timestamp = System.currentTimeMillis();
+        report.uptimeSeconds = (report.timestamp - START_MILLIS) / 1000;
+        counters.forEach((name, counter) -> report.counters.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> {
+            try {
+                report.gauges.put(name, gauge.getAsLong());
+            } catch (RuntimeException e) {
+                // one broken gauge shouldn't cost the whole report
+                GitGudPlugin.LOGGER.atWarning().log("Failed to read gauge " + name + ": " + e.getMessage());
+            }
+        });
+        latencies.forEach((name, histogram) -> report.latencies.put(name, histogram.summarize()));
+        return report;
+    }
+
+    /**
+     * Writes a report to the file every {@code everySeconds} seconds on a background thread, until
+     * {@link #stopWriting()}. Does nothing if the interval is 0 or less.
+     */
+    public static synchronized void startWriting(Path path, int everySeconds) {
+        stopWriting();
+        if (everySeconds <= 0) {
+            return;
+        }
+        reportPath = path;
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gitgud-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleAtFixedRate(Metrics::writeQuietly, everySeconds, everySeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the background writer and writes one last report.
+     */
+    public static synchronized void stopWriting() {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdownNow();
+        writer = null;
+        writeQuietly();
+        reportPath = null;
+    }
+
+    public static synchronized void write(Path path) throws IOException {
+        // written beside the old report and moved over it, so a scraper never reads half a file
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(tempPath, GSON.toJson(report()), StandardCharsets.UTF_8);
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeQuietly() {
+        Path path = reportPath;
+        if (path == null) {
+            return;
+        }
+        try {
+            write(path);
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to write metrics: " + e.getMessage());
+        }
+    }
+}
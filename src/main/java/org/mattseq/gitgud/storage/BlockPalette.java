@@ -0,0 +1,148 @@
+package org.mattseq.gitgud.storage;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Repository-wide mapping between block IDs and small ints, so the working set, decoded commits and queued world edits
+ * carry an int per block instead of their own copy of the ID string.
+ * <p>
+ * The palette only grows. It is persisted to {@code .gitgud/palette} (magic, version, then one utf ID per entry in
+ * index order) so indices stay stable between restarts; new IDs are appended by {@link #save()}. Commit, journal and
+ * keyframe files still store the IDs themselves, so losing the palette file never loses history.
+ */
+public final class BlockPalette {
+    private static final byte[] MAGIC = {'G', 'G', 'P', 'L'};
+    private static final int VERSION = 1;
+
+    private static final Object lock = new Object();
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[256];
+    private static volatile int size;
+    private static Path palettePath;
+    // entries already in the palette file
+    private static int persisted;
+
+    private BlockPalette() {
+    }
+
+    /**
+     * Returns the index of a block ID, adding it if it is new.
+     */
+    public static int id(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (lock) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            int newId = size;
+            names[newId] = name;
+            size = newId + 1;
+            // published last, so anyone who gets the index from the map can also see the name
+            ids.put(name, newId);
+            return newId;
+        }
+    }
+
+    public static String name(int id) {
+        return names[id];
+    }
+
+    public static int size() {
+        return size;
+    }
+
+    /**
+     * Returns a copy of the block IDs that are already in the palette file, in index order.
+     */
+    public static String[] persistedNames() {
+        synchronized (lock) {
+            return Arrays.copyOf(names, persisted);
+        }
+    }
+
+    /**
+     * Loads the palette file. IDs registered before loading keep their indices, and the file is rewritten to match if
+     * they clash with it.
+     */
+    public static void load(Path path) throws IOException {
+        synchronized (lock) {
+            palettePath = path;
+            persisted = 0;
+            if (!Files.exists(path)) {
+                return;
+            }
+            int fileEntries = 0;
+            boolean matches = true;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                byte[] magic = in.readNBytes(MAGIC.length);
+                if (!Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION) {
+                    throw new IOException("Not a GitGud palette: " + path.getFileName());
+                }
+                while (in.available() > 0) {
+                    String name;
+                    try {
+                        name = in.readUTF();
+                    } catch (EOFException e) {
+                        // a torn append, the entry is written again on the next save
+                        matches = false;
+                        break;
+                    }
+                    matches &= id(name) == fileEntries;
+                    fileEntries++;
+                }
+            }
+            if (matches) {
+                persisted = fileEntries;
+            } else {
+                rewrite();
+            }
+        }
+    }
+
+    /**
+     * Appends IDs added since the last save to the palette file.
+     */
+    public static void save() throws IOException {
+        synchronized (lock) {
+            if (palettePath == null || persisted == size) {
+                return;
+            }
+            if (persisted == 0) {
+                rewrite();
+                return;
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(palettePath, StandardOpenOption.APPEND)))) {
+                for (int i = persisted; i < size; i++) {
+                    out.writeUTF(names[i]);
+                }
+            }
+            persisted = size;
+        }
+    }
+
+    private static void rewrite() throws IOException {
+        Path tempPath = palettePath.resolveSibling(palettePath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            for (int i = 0; i < size; i++) {
+                out.writeUTF(names[i]);
+            }
+        }
+        Files.move(tempPath, palettePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        persisted = size;
+    }
+}
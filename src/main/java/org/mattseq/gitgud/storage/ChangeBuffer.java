@@ -0,0 +1,315 @@
+package org.mattseq.gitgud.storage;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import org.mattseq.gitgud.dto.BlockChange;
+import org.mattseq.gitgud.dto.Region;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+
+/**
+ * A growable list of block changes stored as parallel primitive arrays (positions, palette indices and timestamps), so
+ * holding a change costs a few array slots instead of a {@link BlockChange}, a {@link Vector3i} and a list entry.
+ * <p>
+ * Changes are read by index. {@link #get(int)} and {@link #asList()} build {@link BlockChange} objects on demand for
+ * code that wants them. Not thread safe.
+ */
+public final class ChangeBuffer {
+    private int[] xs;
+    private int[] ys;
+    private int[] zs;
+    private int[] oldBlocks;
+    private int[] newBlocks;
+    private long[] timestamps;
+    private int size;
+
+    public ChangeBuffer() {
+        this(16);
+    }
+
+    public ChangeBuffer(int capacity) {
+        capacity = Math.max(capacity, 1);
+        xs = new int[capacity];
+        ys = new int[capacity];
+        zs = new int[capacity];
+        oldBlocks = new int[capacity];
+        newBlocks = new int[capacity];
+        timestamps = new long[capacity];
+    }
+
+    public void add(int x, int y, int z, int oldBlock, int newBlock, long timestamp) {
+        if (size == xs.length) {
+            grow(size + 1);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        oldBlocks[size] = oldBlock;
+        newBlocks[size] = newBlock;
+        timestamps[size] = timestamp;
+        size++;
+    }
+
+    public void add(BlockChange change) {
+        add(change.position.x, change.position.y, change.position.z, change.oldBlock, change.newBlock, change.timestamp);
+    }
+
+    /**
+     * Appends the change at {@code index} of another buffer.
+     */
+    public void add(ChangeBuffer other, int index) {
+        add(other.xs[index], other.ys[index], other.zs[index], other.oldBlocks[index], other.newBlocks[index], other.timestamps[index]);
+    }
+
+    public void addAll(ChangeBuffer other) {
+        addRange(other, 0, other.size);
+    }
+
+    /**
+     * Appends the changes from {@code from} (inclusive) to {@code to} (exclusive) of another buffer.
+     */
+    public void addRange(ChangeBuffer other, int from, int to) {
+        int count = to - from;
+        if (size + count > xs.length) {
+            grow(size + count);
+        }
+        System.arraycopy(other.xs, from, xs, size, count);
+        System.arraycopy(other.ys, from, ys, size, count);
+        System.arraycopy(other.zs, from, zs, size, count);
+        System.arraycopy(other.oldBlocks, from, oldBlocks, size, count);
+        System.arraycopy(other.newBlocks, from, newBlocks, size, count);
+        System.arraycopy(other.timestamps, from, timestamps, size, count);
+        size += count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int x(int index) {
+        return xs[index];
+    }
+
+    public int y(int index) {
+        return ys[index];
+    }
+
+    public int z(int index) {
+        return zs[index];
+    }
+
+    public long positionKey(int index) {
+        return PositionKeys.pack(xs[index], ys[index], zs[index]);
+    }
+
+    public int oldBlock(int index) {
+        return oldBlocks[index];
+    }
+
+    public int newBlock(int index) {
+        return newBlocks[index];
+    }
+
+    public long timestamp(int index) {
+        return timestamps[index];
+    }
+
+    public void setOldBlock(int index, int oldBlock) {
+        oldBlocks[index] = oldBlock;
+    }
+
+    public void setNewBlock(int index, int newBlock, long timestamp) {
+        newBlocks[index] = newBlock;
+        timestamps[index] = timestamp;
+    }
+
+    public boolean contains(Region region, int index) {
+        return region.contains(xs[index], ys[index], zs[index]);
+    }
+
+    /**
+     * Builds a {@link BlockChange} for the change at {@code index}. Changing it does not change the buffer.
+     */
+    public BlockChange get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return new BlockChange(new Vector3i(xs[index], ys[index], zs[index]), oldBlocks[index], newBlocks[index], timestamps[index]);
+    }
+
+    /**
+     * A read-only list view that builds a {@link BlockChange} for each element as it is read.
+     */
+    public List<BlockChange> asList() {
+        return new AbstractList<>() {
+            @Override
+            public BlockChange get(int index) {
+                return ChangeBuffer.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns a new buffer holding the changes inside the region, in order.
+     */
+    public ChangeBuffer inside(Region region) {
+        ChangeBuffer result = new ChangeBuffer();
+        for (int i = 0; i < size; i++) {
+            if (contains(region, i)) {
+                result.add(this, i);
+            }
+        }
+        return result;
+    }
+
+    public ChangeBuffer copy() {
+        ChangeBuffer result = new ChangeBuffer(size);
+        result.addAll(this);
+        return result;
+    }
+
+    /**
+     * Removes every change whose index matches, keeping the order of the rest. Returns how many were removed.
+     */
+    public int removeIf(IntPredicate filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.test(i)) {
+                continue;
+            }
+            if (kept != i) {
+                move(i, kept);
+            }
+            kept++;
+        }
+        int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * Removes the first {@code count} changes.
+     */
+    public void removeFirst(int count) {
+        count = Math.min(count, size);
+        int remaining = size - count;
+        System.arraycopy(xs, count, xs, 0, remaining);
+        System.arraycopy(ys, count, ys, 0, remaining);
+        System.arraycopy(zs, count, zs, 0, remaining);
+        System.arraycopy(oldBlocks, count, oldBlocks, 0, remaining);
+        System.arraycopy(newBlocks, count, newBlocks, 0, remaining);
+        System.arraycopy(timestamps, count, timestamps, 0, remaining);
+        size = remaining;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void sortByTimestamp() {
+        sortBy(index -> timestamps[index]);
+    }
+
+    /**
+     * Sorts the changes by a key computed once per change. The sort is stable, so changes with equal keys keep their
+     * order.
+     */
+    public void sortBy(IntToLongFunction key) {
+        if (size < 2) {
+            return;
+        }
+        long[] keys = new long[size];
+        int[] order = new int[size];
+        boolean sorted = true;
+        for (int i = 0; i < size; i++) {
+            keys[i] = key.applyAsLong(i);
+            order[i] = i;
+            sorted &= i == 0 || keys[i - 1] <= keys[i];
+        }
+        if (sorted) {
+            return;
+        }
+        mergeSort(order, new int[size], keys, 0, size);
+
+        xs = permute(xs, order);
+        ys = permute(ys, order);
+        zs = permute(zs, order);
+        oldBlocks = permute(oldBlocks, order);
+        newBlocks = permute(newBlocks, order);
+        long[] sortedTimestamps = new long[timestamps.length];
+        for (int i = 0; i < size; i++) {
+            sortedTimestamps[i] = timestamps[order[i]];
+        }
+        timestamps = sortedTimestamps;
+    }
+
+    private static void mergeSort(int[] order, int[] scratch, long[] keys, int from, int to) {
+        if (to - from <= 16) {
+            // insertion sort, stable because it only moves past strictly greater keys
+            for (int i = from + 1; i < to; i++) {
+                int index = order[i];
+                int j = i - 1;
+                while (j >= from && keys[order[j]] > keys[index]) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = index;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(order, scratch, keys, from, middle);
+        mergeSort(order, scratch, keys, middle, to);
+        if (keys[order[middle - 1]] <= keys[order[middle]]) {
+            return;
+        }
+        System.arraycopy(order, from, scratch, from, to - from);
+        int left = from, right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && keys[scratch[left]] <= keys[scratch[right]])) {
+                order[i] = scratch[left++];
+            } else {
+                order[i] = scratch[right++];
+            }
+        }
+    }
+
+    private int[] permute(int[] values, int[] order) {
+        int[] sorted = new int[values.length];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = values[order[i]];
+        }
+        return sorted;
+    }
+
+    private void move(int from, int to) {
+        xs[to] = xs[from];
+        ys[to] = ys[from];
+        zs[to] = zs[from];
+        oldBlocks[to] = oldBlocks[from];
+        newBlocks[to] = newBlocks[from];
+        timestamps[to] = timestamps[from];
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, xs.length + (xs.length >> 1));
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        zs = Arrays.copyOf(zs, capacity);
+        oldBlocks = Arrays.copyOf(oldBlocks, capacity);
+        newBlocks = Arrays.copyOf(newBlocks, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+    }
+}
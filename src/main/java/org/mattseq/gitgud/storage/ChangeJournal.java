@@ -0,0 +1,197 @@
+package org.mattseq.gitgud.storage;
+
+import org.mattseq.gitgud.GitGudPlugin;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of uncommitted block changes, split into numbered segment files.
+ * <p>
+ * Each record is {@code [int length][int crc32][u8 type][changes]}, where the checksum covers the type and the
+ * changes. {@code EVENTS} records are replayed on top of each other; a {@code CHECKPOINT} record replaces everything
+ * before it. Checkpoints are written to a fresh segment and older segments are only deleted afterwards, so a crash at
+ * any point still leaves a replayable journal.
+ */
+public class ChangeJournal {
+    private static final String SEGMENT_EXTENSION = ".journal";
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int TYPE_EVENTS = 1;
+    private static final int TYPE_CHECKPOINT = 2;
+
+    private final Path journalPath;
+    private long segmentBytes;
+    private final List<Path> segments = new ArrayList<>();
+    private FileChannel currentSegment;
+    private long recordCount;
+    private long sizeBytes;
+
+    public ChangeJournal(Path journalPath, long segmentBytes) {
+        this.journalPath = journalPath;
+        this.segmentBytes = segmentBytes;
+    }
+
+    public synchronized void setSegmentBytes(long segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Replays every segment into the working set. A torn or corrupt record ends its segment; the segment is cut back to
+     * the last good record so later appends are readable.
+     */
+    public synchronized void recover(WorkingSet workingSet) throws IOException {
+        segments.clear();
+        recordCount = 0;
+        sizeBytes = 0;
+        try (Stream<Path> files = Files.list(journalPath)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_EXTENSION))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+
+        for (Path segment : segments) {
+            long validBytes = replaySegment(segment, workingSet);
+            if (validBytes < Files.size(segment)) {
+                GitGudPlugin.LOGGER.atWarning().log("Journal segment " + segment.getFileName() + " has a damaged tail, truncating to " + validBytes + " bytes.");
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    channel.truncate(validBytes);
+                }
+            }
+            sizeBytes += validBytes;
+        }
+    }
+
+    public synchronized void append(ChangeBuffer events) throws IOException {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (currentSegment == null || currentSegment.size() >= segmentBytes) {
+            openNewSegment();
+        }
+        writeRecord(currentSegment, TYPE_EVENTS, events);
+    }
+
+    /**
+     * Replaces the whole journal with a single record holding the given changes.
+     */
+    public synchronized void checkpoint(ChangeBuffer changes) throws IOException {
+        List<Path> oldSegments = new ArrayList<>(segments);
+        openNewSegment();
+        recordCount = 0;
+        sizeBytes = 0;
+        writeRecord(currentSegment, TYPE_CHECKPOINT, changes);
+        for (Path segment : oldSegments) {
+            Files.deleteIfExists(segment);
+            segments.remove(segment);
+        }
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized void close() {
+        if (currentSegment != null) {
+            try {
+                currentSegment.close();
+            } catch (IOException e) {
+                GitGudPlugin.LOGGER.atWarning().log("Failed to close journal segment: " + e.getMessage());
+            }
+            currentSegment = null;
+        }
+    }
+
+    private void openNewSegment() throws IOException {
+        close();
+        long sequence = 1;
+        if (!segments.isEmpty()) {
+            String lastName = segments.getLast().getFileName().toString();
+            sequence = Long.parseLong(lastName.substring(0, lastName.length() - SEGMENT_EXTENSION.length())) + 1;
+        }
+        Path segment = journalPath.resolve(String.format("%010d", sequence) + SEGMENT_EXTENSION);
+        currentSegment = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segments.add(segment);
+    }
+
+    private void writeRecord(FileChannel channel, int type, ChangeBuffer changes) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeByte(type);
+            CommitCodec.writeChanges(out, changes);
+        }
+        byte[] payload = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+        record.putInt(payload.length);
+        record.putInt((int) crc.getValue());
+        record.put(payload);
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        channel.force(false);
+        recordCount++;
+        sizeBytes += RECORD_HEADER_BYTES + payload.length;
+    }
+
+    /**
+     * Returns the number of bytes that were read successfully.
+     */
+    private long replaySegment(Path segment, WorkingSet workingSet) throws IOException {
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0) {
+                        return validBytes;
+                    }
+                    payload = in.readNBytes(length);
+                } catch (EOFException e) {
+                    return validBytes;
+                }
+                if (payload.length != length) {
+                    return validBytes;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    return validBytes;
+                }
+
+                try (DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload))) {
+                    int type = record.readUnsignedByte();
+                    ChangeBuffer changes = CommitCodec.readChanges(record);
+                    if (type == TYPE_CHECKPOINT) {
+                        workingSet.clear();
+                    }
+                    workingSet.addAll(changes);
+                }
+                validBytes += RECORD_HEADER_BYTES + length;
+                recordCount++;
+            }
+        }
+    }
+}
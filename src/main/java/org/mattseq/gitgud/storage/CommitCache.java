@@ -0,0 +1,90 @@
+package org.mattseq.gitgud.storage;
+
+import org.mattseq.gitgud.dto.Commit;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of decoded commits, bounded by the total number of block changes they hold rather than by entry count,
+ * so a handful of huge commits cannot pin the heap. One cache is shared by every world, with commits keyed by world
+ * and timestamp, so the limit holds for the whole server however many worlds are open.
+ */
+public class CommitCache {
+    private static final class Key {
+        final String world;
+        final long timestamp;
+
+        Key(String world, long timestamp) {
+            this.world = world;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && key.timestamp == timestamp && key.world.equals(world);
+        }
+
+        @Override
+        public int hashCode() {
+            return world.hashCode() * 31 + Long.hashCode(timestamp);
+        }
+    }
+
+    private final LinkedHashMap<Key, Commit> commits = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxChanges;
+    private long cachedChanges;
+
+    public CommitCache(long maxChanges) {
+        this.maxChanges = maxChanges;
+    }
+
+    public synchronized void setMaxChanges(long maxChanges) {
+        this.maxChanges = maxChanges;
+        evict();
+    }
+
+    public synchronized Commit get(String world, long timestamp) {
+        return commits.get(new Key(world, timestamp));
+    }
+
+    public synchronized void put(String world, Commit commit) {
+        long weight = weight(commit);
+        if (weight > maxChanges) {
+            remove(world, commit.timestamp);
+            return;
+        }
+        Commit previous = commits.put(new Key(world, commit.timestamp), commit);
+        if (previous != null) {
+            cachedChanges -= weight(previous);
+        }
+        cachedChanges += weight;
+        evict();
+    }
+
+    public synchronized void remove(String world, long timestamp) {
+        Commit removed = commits.remove(new Key(world, timestamp));
+        if (removed != null) {
+            cachedChanges -= weight(removed);
+        }
+    }
+
+    public synchronized void clear() {
+        commits.clear();
+        cachedChanges = 0;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Commit>> iterator = commits.entrySet().iterator();
+        while (cachedChanges > maxChanges && iterator.hasNext()) {
+            cachedChanges -= weight(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    private static long weight(Commit commit) {
+        // count the commit itself so empty commits still take a slot
+        return commit.blockChanges.size() + 1L;
+    }
+}
@@ -0,0 +1,512 @@
+package org.mattseq.gitgud.storage;
+
+import org.mattseq.gitgud.dto.Commit;
+import org.mattseq.gitgud.dto.CommitInfo;
+import org.mattseq.gitgud.dto.Region;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary encoding for commit files.
+ * <p>
+ * A commit splits its changes into blocks of nearby positions. Each block has its bounding box in the uncompressed
+ * header and is compressed on its own, so reading a region only inflates the blocks that overlap it:
+ * <pre>
+ * "GGUD"  magic
+ * u8      format version
+ * u8      codec (see {@link Compression}), u8 level, and for the dictionary codec an int dictionary id
+ * varint  message length, followed by the message in UTF-8
+ * varlong timestamp
+ * varlong parent commit
+ * varint  change count
+ * varint  block count
+ * blocks: zigzag varint min x, y, z, max x, y, z, varint change count, varint compressed length
+ * block bodies, each compressed with the codec {
+ *   varint  change count
+ *   varint  palette size, followed by that many block ids, each a varint length and UTF-8
+ *   changes: zigzag varint dx, dy, dz (delta from the previous position),
+ *            varint old palette index, varint new palette index,
+ *            zigzag varlong dt (delta from the previous change timestamp)
+ * }
+ * </pre>
+ * Changes are grouped by {@value #AREA_SIZE}-block areas, so a decoded commit lists them area by area; all changes to
+ * one position stay in the same block, in the order they happened.
+ */
+public final class CommitCodec {
+    public static final String COMMIT_EXTENSION = ".commit";
+    public static final String LEGACY_EXTENSION = ".json.gz";
+
+    private static final byte[] MAGIC = {'G', 'G', 'U', 'D'};
+    private static final int VERSION = 1;
+
+    private static final int AREA_BITS = 6;
+    private static final int AREA_SIZE = 1 << AREA_BITS;
+    // small areas are packed together until a block holds this many changes, large ones are split at the maximum
+    private static final int MIN_BLOCK_CHANGES = 1024;
+    private static final int MAX_BLOCK_CHANGES = 8192;
+
+    /**
+     * Receives changes as they are decoded. Blocks are {@link BlockPalette} indices.
+     */
+    public interface ChangeVisitor {
+        void accept(int x, int y, int z, int oldBlock, int newBlock, long timestamp);
+    }
+
+    private CommitCodec() {
+    }
+
+    public static void writeCommit(Path file, Commit commit) throws IOException {
+        writeCommit(file, commit, Compression.DEFAULT);
+    }
+
+    public static void writeCommit(Path file, Commit commit, Compression compression) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            writeCommit(out, commit, compression);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the bytes of a commit file to the stream, leaving it open.
+     */
+    public static void writeCommit(OutputStream stream, Commit commit) throws IOException {
+        writeCommit(stream, commit, Compression.DEFAULT);
+    }
+
+    public static void writeCommit(OutputStream stream, Commit commit, Compression compression) throws IOException {
+        List<ChangeBuffer> blocks = splitIntoBlocks(commit.blockChanges);
+        List<byte[]> bodies = new ArrayList<>(blocks.size());
+        for (ChangeBuffer block : blocks) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(body)) {
+                writeChanges(out, block);
+            }
+            bodies.add(compression.compress(body.toByteArray()));
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(compression.codec);
+        out.writeByte(compression.level);
+        if (compression.codec == Compression.CODEC_DICTIONARY) {
+            out.writeInt(compression.dictionaryId);
+        }
+        writeString(out, commit.message);
+        writeVarLong(out, commit.timestamp);
+        writeVarLong(out, commit.parentCommit);
+        writeVarInt(out, commit.blockChanges.size());
+        writeVarInt(out, blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            writeBlockHeader(out, blocks.get(i), bodies.get(i).length);
+        }
+        for (byte[] body : bodies) {
+            out.write(body);
+        }
+        out.flush();
+    }
+
+    public static Commit readCommit(Path file) throws IOException {
+        return readCommit(file, null);
+    }
+
+    /**
+     * Reads a commit, keeping only the changes inside the region (or all of them if the region is null). Blocks that
+     * do not overlap the region are skipped without being decompressed.
+     */
+    public static Commit readCommit(Path file, Region region) throws IOException {
+        return readCommit(Files.newInputStream(file), file.getFileName().toString(), region);
+    }
+
+    /**
+     * Reads a commit from a stream holding the bytes of a commit file, and closes it. {@code name} is only used in error
+     * messages.
+     */
+    public static Commit readCommit(InputStream stream, String name, Region region) throws IOException {
+        ChangeBuffer changes = new ChangeBuffer();
+        CommitInfo info = forEachChange(stream, name, region, changes::add);
+        return new Commit(info.message, changes, info.timestamp, info.parentCommit);
+    }
+
+    /**
+     * Streams the changes of a commit to the visitor in the order they are stored, keeping only those inside the region
+     * if one is given, and closes the stream. Only one block is decompressed at a time and no change list is built.
+     * Returns the commit's header.
+     */
+    public static CommitInfo forEachChange(InputStream stream, String name, Region region, ChangeVisitor visitor) throws IOException {
+        try (Body body = open(stream, name)) {
+            DataInputStream in = body.in;
+            String message = readString(in);
+            long timestamp = readVarLong(in);
+            long parent = readVarLong(in);
+            int changeCount = readVarInt(in);
+            BlockHeader[] blocks = readBlockHeaders(in);
+            for (BlockHeader block : blocks) {
+                if (region != null && !region.intersects(block.minX, block.minY, block.minZ, block.maxX, block.maxY, block.maxZ)) {
+                    in.skipNBytes(block.length);
+                    continue;
+                }
+                byte[] compressed = in.readNBytes(block.length);
+                if (compressed.length != block.length) {
+                    throw new EOFException("Truncated block in " + name);
+                }
+                boolean enclosed = region == null || region.encloses(block.minX, block.minY, block.minZ, block.maxX, block.maxY, block.maxZ);
+                try (DataInputStream blockIn = body.openBlock(ByteBuffer.wrap(compressed))) {
+                    readChanges(blockIn, enclosed ? visitor : inside(region, visitor));
+                }
+            }
+            return new CommitInfo(message, timestamp, parent, changeCount);
+        }
+    }
+
+    /**
+     * Streams the changes of a commit to the visitor newest first, from a buffer holding the whole commit file. The
+     * block table gives where every block starts, so blocks are decompressed last to first and only one block's changes
+     * are held at a time. Returns the commit's header.
+     */
+    public static CommitInfo forEachChangeReversed(ByteBuffer file, String name, ChangeVisitor visitor) throws IOException {
+        ByteBuffer buffer = file.slice();
+        try (Body body = open(new ByteBufferInputStream(buffer), name)) {
+            DataInputStream in = body.in;
+            String message = readString(in);
+            long timestamp = readVarLong(in);
+            long parent = readVarLong(in);
+            int changeCount = readVarInt(in);
+            BlockHeader[] blocks = readBlockHeaders(in);
+            // nothing buffers a ByteBufferInputStream, so the buffer now sits right after the block table
+            long end = buffer.position();
+            for (BlockHeader block : blocks) {
+                end += block.length;
+            }
+            if (end > buffer.limit()) {
+                throw new EOFException("Truncated block in " + name);
+            }
+            ChangeBuffer changes = new ChangeBuffer();
+            int offset = (int) end;
+            for (int i = blocks.length - 1; i >= 0; i--) {
+                offset -= blocks[i].length;
+                changes.clear();
+                try (DataInputStream blockIn = body.openBlock(buffer.slice(offset, blocks[i].length))) {
+                    readChanges(blockIn, changes::add);
+                }
+                visitReversed(changes, visitor);
+            }
+            return new CommitInfo(message, timestamp, parent, changeCount);
+        }
+    }
+
+    private static void visitReversed(ChangeBuffer changes, ChangeVisitor visitor) {
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            visitor.accept(changes.x(i), changes.y(i), changes.z(i), changes.oldBlock(i), changes.newBlock(i), changes.timestamp(i));
+        }
+    }
+
+    private static ChangeVisitor inside(Region region, ChangeVisitor visitor) {
+        return (x, y, z, oldBlock, newBlock, timestamp) -> {
+            if (region.contains(x, y, z)) {
+                visitor.accept(x, y, z, oldBlock, newBlock, timestamp);
+            }
+        };
+    }
+
+    /**
+     * Reads only the header of a commit file, without decoding its block changes.
+     */
+    public static CommitInfo readCommitInfo(Path file) throws IOException {
+        return readCommitInfo(Files.newInputStream(file), file.getFileName().toString());
+    }
+
+    public static CommitInfo readCommitInfo(InputStream stream, String name) throws IOException {
+        try (Body body = open(stream, name)) {
+            DataInputStream in = body.in;
+            String message = readString(in);
+            long timestamp = readVarLong(in);
+            long parent = readVarLong(in);
+            return new CommitInfo(message, timestamp, parent, readVarInt(in));
+        }
+    }
+
+    // the part of a file after the codec bytes
+    private static final class Body implements Closeable {
+        final DataInputStream in;
+        final int codec;
+        final int dictionaryId;
+
+        Body(DataInputStream in, int codec, int dictionaryId) {
+            this.in = in;
+            this.codec = codec;
+            this.dictionaryId = dictionaryId;
+        }
+
+        DataInputStream openBlock(ByteBuffer compressed) throws IOException {
+            return Compression.decompress(codec, dictionaryId, compressed);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static Body open(InputStream stream, String name) throws IOException {
+        InputStream raw = stream instanceof ByteBufferInputStream ? stream : new BufferedInputStream(stream, 1 << 16);
+        try {
+            byte[] magic = raw.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a GitGud file: " + name);
+            }
+            int version = raw.read();
+            if (version != VERSION) {
+                throw new IOException("Unsupported format version " + version + " in " + name);
+            }
+            DataInputStream in = new DataInputStream(raw);
+            int codec = in.readUnsignedByte();
+            in.readUnsignedByte(); // level, only needed when writing
+            int dictionaryId = 0;
+            if (codec == Compression.CODEC_DICTIONARY) {
+                dictionaryId = in.readInt();
+            } else if (codec != Compression.CODEC_NONE && codec != Compression.CODEC_DEFLATE) {
+                throw new IOException("Unsupported compression codec " + codec + " in " + name);
+            }
+            return new Body(in, codec, dictionaryId);
+        } catch (IOException e) {
+            raw.close();
+            throw e;
+        }
+    }
+
+    private static final class BlockHeader {
+        int minX, minY, minZ, maxX, maxY, maxZ;
+        int changeCount;
+        int length;
+    }
+
+    /**
+     * Groups changes by area, keeping their order within each area, then packs small areas together and splits large
+     * ones so every block holds a reasonable number of changes.
+     */
+    private static List<ChangeBuffer> splitIntoBlocks(ChangeBuffer changes) {
+        ChangeBuffer sorted = changes.copy();
+        sorted.sortBy(i -> PositionKeys.pack(sorted.x(i) >> AREA_BITS, sorted.y(i) >> AREA_BITS, sorted.z(i) >> AREA_BITS));
+
+        List<ChangeBuffer> blocks = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            boolean areaEnds = i + 1 == sorted.size() || !sameArea(sorted, i, i + 1);
+            int length = i + 1 - start;
+            if (length >= MAX_BLOCK_CHANGES || (areaEnds && length >= MIN_BLOCK_CHANGES)) {
+                blocks.add(slice(sorted, start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < sorted.size()) {
+            blocks.add(slice(sorted, start, sorted.size()));
+        }
+        return blocks;
+    }
+
+    private static boolean sameArea(ChangeBuffer changes, int a, int b) {
+        return changes.x(a) >> AREA_BITS == changes.x(b) >> AREA_BITS
+                && changes.y(a) >> AREA_BITS == changes.y(b) >> AREA_BITS
+                && changes.z(a) >> AREA_BITS == changes.z(b) >> AREA_BITS;
+    }
+
+    private static ChangeBuffer slice(ChangeBuffer changes, int from, int to) {
+        ChangeBuffer block = new ChangeBuffer(to - from);
+        block.addRange(changes, from, to);
+        return block;
+    }
+
+    private static void writeBlockHeader(DataOutputStream out, ChangeBuffer block, int length) throws IOException {
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < block.size(); i++) {
+            minX = Math.min(minX, block.x(i));
+            minY = Math.min(minY, block.y(i));
+            minZ = Math.min(minZ, block.z(i));
+            maxX = Math.max(maxX, block.x(i));
+            maxY = Math.max(maxY, block.y(i));
+            maxZ = Math.max(maxZ, block.z(i));
+        }
+        writeVarInt(out, zigzag(minX));
+        writeVarInt(out, zigzag(minY));
+        writeVarInt(out, zigzag(minZ));
+        writeVarInt(out, zigzag(maxX));
+        writeVarInt(out, zigzag(maxY));
+        writeVarInt(out, zigzag(maxZ));
+        writeVarInt(out, block.size());
+        writeVarInt(out, length);
+    }
+
+    private static BlockHeader[] readBlockHeaders(DataInputStream in) throws IOException {
+        BlockHeader[] blocks = new BlockHeader[readVarInt(in)];
+        for (int i = 0; i < blocks.length; i++) {
+            BlockHeader block = new BlockHeader();
+            block.minX = unzigzag(readVarInt(in));
+            block.minY = unzigzag(readVarInt(in));
+            block.minZ = unzigzag(readVarInt(in));
+            block.maxX = unzigzag(readVarInt(in));
+            block.maxY = unzigzag(readVarInt(in));
+            block.maxZ = unzigzag(readVarInt(in));
+            block.changeCount = readVarInt(in);
+            block.length = readVarInt(in);
+            blocks[i] = block;
+        }
+        return blocks;
+    }
+
+    static void writeChanges(DataOutputStream out, ChangeBuffer changes) throws IOException {
+        // global palette index -> index in this file's palette (+1, so 0 means not added yet)
+        int[] localIndex = new int[BlockPalette.size()];
+        List<Integer> palette = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            int oldBlock = changes.oldBlock(i);
+            int newBlock = changes.newBlock(i);
+            if (localIndex[oldBlock] == 0) {
+                palette.add(oldBlock);
+                localIndex[oldBlock] = palette.size();
+            }
+            if (localIndex[newBlock] == 0) {
+                palette.add(newBlock);
+                localIndex[newBlock] = palette.size();
+            }
+        }
+
+        writeVarInt(out, changes.size());
+        writeVarInt(out, palette.size());
+        for (int block : palette) {
+            writeString(out, BlockPalette.name(block));
+        }
+
+        int lastX = 0, lastY = 0, lastZ = 0;
+        long lastTimestamp = 0;
+        for (int i = 0; i < changes.size(); i++) {
+            int x = changes.x(i), y = changes.y(i), z = changes.z(i);
+            long timestamp = changes.timestamp(i);
+            writeVarInt(out, zigzag(x - lastX));
+            writeVarInt(out, zigzag(y - lastY));
+            writeVarInt(out, zigzag(z - lastZ));
+            writeVarInt(out, localIndex[changes.oldBlock(i)] - 1);
+            writeVarInt(out, localIndex[changes.newBlock(i)] - 1);
+            writeVarLong(out, zigzag(timestamp - lastTimestamp));
+            lastX = x;
+            lastY = y;
+            lastZ = z;
+            lastTimestamp = timestamp;
+        }
+    }
+
+    static ChangeBuffer readChanges(DataInputStream in) throws IOException {
+        ChangeBuffer changes = new ChangeBuffer();
+        readChanges(in, changes::add);
+        return changes;
+    }
+
+    /**
+     * Decodes a change list, passing each change to the visitor. Returns the number of changes in the list.
+     */
+    static int readChanges(DataInputStream in, ChangeVisitor visitor) throws IOException {
+        int count = readVarInt(in);
+        int[] palette = new int[readVarInt(in)];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = BlockPalette.id(readString(in));
+        }
+
+        int x = 0, y = 0, z = 0;
+        long timestamp = 0;
+        for (int i = 0; i < count; i++) {
+            x += unzigzag(readVarInt(in));
+            y += unzigzag(readVarInt(in));
+            z += unzigzag(readVarInt(in));
+            int oldBlock = palette[readVarInt(in)];
+            int newBlock = palette[readVarInt(in)];
+            timestamp += unzigzag(readVarLong(in));
+            visitor.accept(x, y, z, oldBlock, newBlock, timestamp);
+        }
+        return count;
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Writes a string as its UTF-8 length and bytes. Unlike {@link DataOutput#writeUTF}, it has no 64 KB limit.
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0) {
+            throw new IOException("Malformed string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varlong");
+    }
+}
@@ -0,0 +1,175 @@
+package org.mattseq.gitgud.storage;
+
+import org.mattseq.gitgud.dto.CommitInfo;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent index of commit metadata, so history can be walked without decoding commit files.
+ * <p>
+ * The file is a header followed by one record per commit. New commits are appended; removals rewrite the file. An
+ * index from an older version is not read, and gets rebuilt from the commit files.
+ */
+public class CommitIndex {
+    private static final byte[] MAGIC = {'G', 'G', 'I', 'X'};
+    private static final int VERSION = 1;
+
+    private final Path indexPath;
+    private final Map<Long, CommitInfo> entries = new LinkedHashMap<>();
+
+    public CommitIndex(Path indexPath) {
+        this.indexPath = indexPath;
+    }
+
+    /**
+     * Loads the index from disk. Returns false if the file is missing or unreadable, in which case the caller should
+     * {@link #rebuild(List)} it.
+     */
+    public synchronized boolean load() {
+        entries.clear();
+        if (!Files.exists(indexPath)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            byte[] magic = in.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION) {
+                return false;
+            }
+            while (in.available() > 0) {
+                CommitInfo info = readEntry(in);
+                entries.put(info.timestamp, info);
+            }
+            return true;
+        } catch (IOException e) {
+            // a truncated trailing record means the last append did not finish
+            entries.clear();
+            return false;
+        }
+    }
+
+    public synchronized void rebuild(List<CommitInfo> commits) throws IOException {
+        entries.clear();
+        for (CommitInfo info : commits) {
+            entries.put(info.timestamp, info);
+        }
+        rewrite();
+    }
+
+    public synchronized void add(CommitInfo info) throws IOException {
+        entries.put(info.timestamp, info);
+        if (!Files.exists(indexPath)) {
+            rewrite();
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath, StandardOpenOption.APPEND)))) {
+            writeEntry(out, info);
+        }
+    }
+
+    /**
+     * Replaces a run of commits with one commit in a single rewrite. The replacement keeps the place of the entry with
+     * the same timestamp; the other timestamps are dropped.
+     */
+    public synchronized void replace(Collection<Long> removed, CommitInfo replacement) throws IOException {
+        for (long timestamp : removed) {
+            if (timestamp != replacement.timestamp) {
+                entries.remove(timestamp);
+            }
+        }
+        entries.put(replacement.timestamp, replacement);
+        rewrite();
+    }
+
+    public synchronized void remove(long timestamp) throws IOException {
+        if (entries.remove(timestamp) != null) {
+            rewrite();
+        }
+    }
+
+    public synchronized CommitInfo get(long timestamp) {
+        return entries.get(timestamp);
+    }
+
+    public synchronized boolean contains(long timestamp) {
+        return entries.containsKey(timestamp);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long totalChangeCount() {
+        long total = 0;
+        for (CommitInfo info : entries.values()) {
+            total += info.changeCount;
+        }
+        return total;
+    }
+
+    /**
+     * Follows parent links from the given commit, newest first.
+     */
+    public synchronized List<CommitInfo> chain(long fromTimestamp, int limit) {
+        return chain(fromTimestamp, 0, limit);
+    }
+
+    /**
+     * Follows parent links from the given commit, newest first, leaving out the first {@code skip} commits. Stops as
+     * soon as {@code limit} commits have been collected.
+     */
+    public synchronized List<CommitInfo> chain(long fromTimestamp, int skip, int limit) {
+        List<CommitInfo> chain = new ArrayList<>(Math.min(limit, 64));
+        long timestamp = fromTimestamp;
+        int skipped = 0;
+        while (chain.size() < limit && timestamp > 0) {
+            CommitInfo info = entries.get(timestamp);
+            if (info == null) {
+                break;
+            }
+            if (skipped < skip) {
+                skipped++;
+            } else {
+                chain.add(info);
+            }
+            timestamp = info.parentCommit;
+        }
+        return chain;
+    }
+
+    private void rewrite() throws IOException {
+        Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            for (CommitInfo info : entries.values()) {
+                writeEntry(out, info);
+            }
+        }
+        Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeEntry(DataOutputStream out, CommitInfo info) throws IOException {
+        out.writeLong(info.timestamp);
+        out.writeLong(info.parentCommit);
+        out.writeInt(info.changeCount);
+        CommitCodec.writeString(out, info.message);
+    }
+
+    private static CommitInfo readEntry(DataInputStream in) throws IOException {
+        long timestamp = in.readLong();
+        long parent = in.readLong();
+        int changeCount = in.readInt();
+        String message = CommitCodec.readString(in);
+        return new CommitInfo(message, timestamp, parent, changeCount);
+    }
+}
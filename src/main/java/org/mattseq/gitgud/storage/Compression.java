@@ -0,0 +1,241 @@
+package org.mattseq.gitgud.storage;
+
+import org.mattseq.gitgud.metrics.LatencyHistogram;
+import org.mattseq.gitgud.metrics.Metrics;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * How the block bodies of a commit file are compressed: not at all, with deflate at a level from 1 to 9, or with
+ * deflate primed with a preset dictionary of the repository's block IDs.
+ * <p>
+ * The codec is recorded in each file's header, so files written with different settings are read side by side. A
+ * dictionary is stored once in {@code .gitgud/dictionaries}, named by its checksum, and files refer to it by that
+ * checksum. A new dictionary is built when the block palette has grown since the last one; old ones are kept for the
+ * files that use them.
+ */
+public final class Compression {
+    public static final int CODEC_NONE = 0;
+    public static final int CODEC_DEFLATE = 1;
+    public static final int CODEC_DICTIONARY = 2;
+
+    public static final int DEFAULT_LEVEL = 6;
+    public static final Compression DEFAULT = new Compression(CODEC_DEFLATE, DEFAULT_LEVEL, 0, null);
+
+    private static final String DICTIONARY_EXTENSION = ".dict";
+    // deflate can only reach back 32 KB, so anything before that would never be used
+    private static final int MAX_DICTIONARY_BYTES = 32 * 1024;
+
+    private static final LatencyHistogram compressLatency = Metrics.latency("compression.compress");
+
+    private static final Object dictionaryLock = new Object();
+    private static final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+    private static Path dictionariesPath;
+    private static int dictionaryPaletteSize = -1;
+    private static int currentDictionaryId;
+
+    public final int codec;
+    public final int level;
+    // checksum naming the dictionary file, only for CODEC_DICTIONARY
+    public final int dictionaryId;
+    private final byte[] dictionary;
+
+    private Compression(int codec, int level, int dictionaryId, byte[] dictionary) {
+        this.codec = codec;
+        this.level = level;
+        this.dictionaryId = dictionaryId;
+        this.dictionary = dictionary;
+    }
+
+    public static Compression none() {
+        return new Compression(CODEC_NONE, 0, 0, null);
+    }
+
+    public static Compression deflate(int level) {
+        return new Compression(CODEC_DEFLATE, checkLevel(level), 0, null);
+    }
+
+    /**
+     * Deflate with the current block palette as a preset dictionary, writing the dictionary file first if it is new.
+     * Plain deflate while the palette is still empty.
+     */
+    public static Compression dictionary(int level) throws IOException {
+        checkLevel(level);
+        if (BlockPalette.size() == 0) {
+            return deflate(level);
+        }
+        synchronized (dictionaryLock) {
+            if (dictionaryPaletteSize != BlockPalette.size()) {
+                byte[] dictionary = buildDictionary();
+                currentDictionaryId = saveDictionary(dictionary);
+                dictionaryPaletteSize = BlockPalette.size();
+            }
+            return new Compression(CODEC_DICTIONARY, level, currentDictionaryId, dictionaries.get(currentDictionaryId));
+        }
+    }
+
+    /**
+     * Parses a codec name from the config: {@code none}, {@code deflate} or {@code dictionary}.
+     */
+    public static Compression parse(String name, int level) throws IOException {
+        return switch (name == null ? "" : name.trim().toLowerCase()) {
+            case "none" -> none();
+            case "deflate" -> deflate(level);
+            case "dictionary" -> dictionary(level);
+            default -> throw new IllegalArgumentException("Unknown compression \"" + name + "\", expected none, deflate or dictionary");
+        };
+    }
+
+    private static int checkLevel(int level) {
+        if (level < 1 || level > 9) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9, got " + level);
+        }
+        return level;
+    }
+
+    /**
+     * Sets where dictionary files live. Dictionaries are read from there on first use.
+     */
+    public static void setDictionariesPath(Path path) {
+        synchronized (dictionaryLock) {
+            dictionariesPath = path;
+            dictionaryPaletteSize = -1;
+        }
+    }
+
+    public byte[] compress(byte[] raw) throws IOException {
+        if (codec == CODEC_NONE) {
+            return raw;
+        }
+        long start = System.nanoTime();
+        Deflater deflater = new Deflater(level);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater, 1 << 16)) {
+                out.write(raw);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+            compressLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * Opens a block body written with the given codec for reading.
+     */
+    static DataInputStream decompress(int codec, int dictionaryId, ByteBuffer compressed) throws IOException {
+        if (codec == CODEC_NONE) {
+            return new DataInputStream(new ByteBufferInputStream(compressed));
+        }
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        if (codec == CODEC_DICTIONARY) {
+            // the first call only reads the zlib header, which asks for the dictionary
+            try {
+                if (inflater.inflate(new byte[1]) != 0 || !inflater.needsDictionary()) {
+                    throw new IOException("Block was not compressed with a dictionary");
+                }
+                inflater.setDictionary(loadDictionary(dictionaryId));
+            } catch (DataFormatException | IOException | IllegalArgumentException e) {
+                inflater.end();
+                throw e instanceof IOException io ? io : new IOException("Cannot apply dictionary " + Integer.toHexString(dictionaryId), e);
+            }
+        }
+        // every byte of input is already in the inflater, so the stream underneath is never read
+        InflaterInputStream in = new InflaterInputStream(InputStream.nullInputStream(), inflater, 1 << 16) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inflater.end();
+            }
+        };
+        return new DataInputStream(new BufferedInputStream(in, 1 << 16));
+    }
+
+    public String describe() {
+        return switch (codec) {
+            case CODEC_NONE -> "none";
+            case CODEC_DEFLATE -> "deflate level " + level;
+            default -> "dictionary level " + level + " (" + Integer.toHexString(dictionaryId) + ")";
+        };
+    }
+
+    private static byte[] loadDictionary(int id) throws IOException {
+        byte[] dictionary = dictionaries.get(id);
+        if (dictionary != null) {
+            return dictionary;
+        }
+        Path file;
+        synchronized (dictionaryLock) {
+            if (dictionariesPath == null) {
+                throw new IOException("Compression dictionary " + Integer.toHexString(id) + " is not available");
+            }
+            file = dictionariesPath.resolve(Integer.toHexString(id) + DICTIONARY_EXTENSION);
+        }
+        if (!Files.exists(file)) {
+            throw new IOException("Missing compression dictionary " + file.getFileName());
+        }
+        dictionary = Files.readAllBytes(file);
+        if (checksum(dictionary) != id) {
+            throw new IOException("Corrupt compression dictionary " + file.getFileName());
+        }
+        dictionaries.put(id, dictionary);
+        return dictionary;
+    }
+
+    /**
+     * Block IDs as they appear in a block body's palette (length-prefixed utf). Deflate codes nearby matches more
+     * cheaply, so the oldest IDs, which tend to be the most common ones, go last.
+     */
+    private static byte[] buildDictionary() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (int id = BlockPalette.size() - 1; id >= 0; id--) {
+                out.writeUTF(BlockPalette.name(id));
+            }
+        }
+        byte[] dictionary = bytes.toByteArray();
+        if (dictionary.length > MAX_DICTIONARY_BYTES) {
+            dictionary = Arrays.copyOfRange(dictionary, dictionary.length - MAX_DICTIONARY_BYTES, dictionary.length);
+        }
+        return dictionary;
+    }
+
+    private static int saveDictionary(byte[] dictionary) throws IOException {
+        int id = checksum(dictionary);
+        if (dictionariesPath != null) {
+            Path file = dictionariesPath.resolve(Integer.toHexString(id) + DICTIONARY_EXTENSION);
+            if (!Files.exists(file)) {
+                Files.createDirectories(dictionariesPath);
+                Path tempPath = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.write(tempPath, dictionary);
+                Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        dictionaries.put(id, dictionary);
+        return id;
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,173 @@
+package org.mattseq.gitgud.storage;
+
+import org.mattseq.gitgud.GitGudPlugin;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Materialized snapshots of every block touched by history, taken at a given commit.
+ * <p>
+ * For each position a keyframe holds the block before any commit touched it (its origin) and the block after the
+ * keyframe's commit. With both, the state of any position at a nearby commit can be rebuilt by replaying only the
+ * commits since the keyframe, and positions first touched later fall back to their origin.
+ * <p>
+ * Layout:
+ * <pre>
+ * "GGKF"  magic
+ * u8      format version
+ * varint  entry count
+ * gzip {
+ *   varint palette size, followed by that many block ids, each a varint length and UTF-8 bytes
+ *   entries sorted by packed position: zigzag varlong key delta, varint origin index, varint state index
+ * }
+ * </pre>
+ */
+public class KeyframeStore {
+    // block palette indices
+    public static final class Entry {
+        public final int origin;
+        public int state;
+
+        public Entry(int origin, int state) {
+            this.origin = origin;
+            this.state = state;
+        }
+    }
+
+    private static final String EXTENSION = ".keyframe";
+    private static final byte[] MAGIC = {'G', 'G', 'K', 'F'};
+    private static final int VERSION = 1;
+
+    private final Path keyframesPath;
+    // commit timestamp -> entry count
+    private final Map<Long, Integer> keyframes = new ConcurrentHashMap<>();
+
+    public KeyframeStore(Path keyframesPath) {
+        this.keyframesPath = keyframesPath;
+    }
+
+    public void load() throws IOException {
+        keyframes.clear();
+        try (Stream<Path> files = Files.list(keyframesPath)) {
+            for (Path file : files.toList()) {
+                String fileName = file.getFileName().toString();
+                if (!fileName.endsWith(EXTENSION)) {
+                    continue;
+                }
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    readHeader(in, file);
+                    long timestamp = Long.parseLong(fileName.substring(0, fileName.length() - EXTENSION.length()));
+                    keyframes.put(timestamp, CommitCodec.readVarInt(in));
+                } catch (IOException | NumberFormatException e) {
+                    GitGudPlugin.LOGGER.atWarning().log("Ignoring unreadable keyframe " + fileName + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    public boolean has(long commitTimestamp) {
+        return keyframes.containsKey(commitTimestamp);
+    }
+
+    /**
+     * Returns the number of positions in the keyframe, or -1 if there is none for this commit.
+     */
+    public int size(long commitTimestamp) {
+        return keyframes.getOrDefault(commitTimestamp, -1);
+    }
+
+    public int count() {
+        return keyframes.size();
+    }
+
+    public Map<Long, Entry> read(long commitTimestamp) throws IOException {
+        Path file = keyframesPath.resolve(commitTimestamp + EXTENSION);
+        try (DataInputStream header = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readHeader(header, file);
+            int count = CommitCodec.readVarInt(header);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(header, 1 << 16), 1 << 16));
+            int[] palette = new int[CommitCodec.readVarInt(in)];
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = BlockPalette.id(CommitCodec.readString(in));
+            }
+            Map<Long, Entry> entries = new HashMap<>(count * 2);
+            long key = 0;
+            for (int i = 0; i < count; i++) {
+                key += CommitCodec.unzigzag(CommitCodec.readVarLong(in));
+                entries.put(key, new Entry(palette[CommitCodec.readVarInt(in)], palette[CommitCodec.readVarInt(in)]));
+            }
+            return entries;
+        }
+    }
+
+    public void write(long commitTimestamp, Map<Long, Entry> entries) throws IOException {
+        long[] keys = new long[entries.size()];
+        int index = 0;
+        Map<Integer, Integer> palette = new LinkedHashMap<>();
+        for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+            keys[index++] = entry.getKey();
+            palette.putIfAbsent(entry.getValue().origin, palette.size());
+            palette.putIfAbsent(entry.getValue().state, palette.size());
+        }
+        // sorted keys keep the deltas small
+        Arrays.sort(keys);
+
+        Path file = keyframesPath.resolve(commitTimestamp + EXTENSION);
+        Path tempFile = keyframesPath.resolve(commitTimestamp + EXTENSION + ".tmp");
+        try (OutputStream raw = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+            DataOutputStream header = new DataOutputStream(raw);
+            header.write(MAGIC);
+            header.writeByte(VERSION);
+            CommitCodec.writeVarInt(header, keys.length);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(raw, 1 << 16), 1 << 16))) {
+                CommitCodec.writeVarInt(out, palette.size());
+                for (int block : palette.keySet()) {
+                    CommitCodec.writeString(out, BlockPalette.name(block));
+                }
+                long lastKey = 0;
+                for (long key : keys) {
+                    Entry entry = entries.get(key);
+                    CommitCodec.writeVarLong(out, CommitCodec.zigzag(key - lastKey));
+                    CommitCodec.writeVarInt(out, palette.get(entry.origin));
+                    CommitCodec.writeVarInt(out, palette.get(entry.state));
+                    lastKey = key;
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        keyframes.put(commitTimestamp, keys.length);
+    }
+
+    public void delete(long commitTimestamp) {
+        if (keyframes.remove(commitTimestamp) == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(keyframesPath.resolve(commitTimestamp + EXTENSION));
+        } catch (IOException e) {
+            GitGudPlugin.LOGGER.atWarning().log("Failed to delete keyframe " + commitTimestamp + ": " + e.getMessage());
+        }
+    }
+
+    private static void readHeader(DataInputStream in, Path file) throws IOException {
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a keyframe file: " + file.getFileName());
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported keyframe version " + version + " in " + file.getFileName());
+        }
+    }
+}
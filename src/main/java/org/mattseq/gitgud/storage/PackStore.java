@@ -0,0 +1,400 @@
+package org.mattseq.gitgud.storage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Pack files holding many commits each, read through memory-mapped buffers so walking history does not open a file
+ * per commit.
+ * <p>
+ * A pack is the bytes of each commit file one after another, followed by an offset table:
+ * <pre>
+ * "GGPK"  magic
+ * u8      format version
+ * commit files, back to back
+ * table:  per commit, long timestamp, long offset, int length
+ * long    table offset
+ * int     commit count
+ * "GGPK"  magic
+ * </pre>
+ * A pack file is never changed once written, since a mapped file cannot be replaced on every platform. Removing a packed
+ * commit appends the pack's name and the commit's timestamp to the {@value #REMOVED_FILE} file instead, and that copy
+ * is ignored from then on. Removals belong to one pack, so the same commit written into a later pack is live again.
+ * {@link #compact()} copies the live commits of a pack with removals into a pack with a new name, marks every commit of
+ * the old one removed and only then deletes it, so no file is ever replaced while mapped and a crash at any step leaves
+ * each commit readable.
+ */
+public class PackStore {
+    /**
+     * Supplies the bytes of a commit file while a pack is being written.
+     */
+    public interface CommitSource {
+        byte[] read(long commitTimestamp) throws IOException;
+    }
+
+    public static final String EXTENSION = ".pack";
+
+    private static final String REMOVED_FILE = "removed";
+    private static final byte[] REMOVED_MAGIC = {'G', 'G', 'R', 'M'};
+    private static final int REMOVED_VERSION = 1;
+    private static final byte[] MAGIC = {'G', 'G', 'P', 'K'};
+    private static final int VERSION = 1;
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES + MAGIC.length;
+    private static final int TABLE_ENTRY_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES;
+    // a single mapping is limited to 2 GB, so packs are started fresh well before that
+    private static final long MAX_PACK_BYTES = 1L << 30;
+
+    private static final class Location {
+        final Path pack;
+        final MappedByteBuffer buffer;
+        final int offset;
+        final int length;
+
+        Location(Path pack, MappedByteBuffer buffer, int offset, int length) {
+            this.pack = pack;
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final Path packsPath;
+    private final Path removedPath;
+    private final Map<Long, Location> locations = new ConcurrentHashMap<>();
+    // pack file name -> commits removed from that pack
+    private final Map<String, Set<Long>> removed = new ConcurrentHashMap<>();
+    private final Map<Path, Long> packSizes = new ConcurrentHashMap<>();
+    // every commit in each pack's offset table, live or removed
+    private final Map<Path, List<Long>> packContents = new ConcurrentHashMap<>();
+    // false until the removed file is known to be in the current format, so appending to it is safe
+    private boolean removedFileCurrent;
+
+    public PackStore(Path packsPath) {
+        this.packsPath = packsPath;
+        this.removedPath = packsPath.resolve(REMOVED_FILE);
+    }
+
+    /**
+     * Maps every pack in the directory and reads their offset tables.
+     */
+    public synchronized void load() throws IOException {
+        locations.clear();
+        removed.clear();
+        packSizes.clear();
+        packContents.clear();
+        removedFileCurrent = false;
+        if (!Files.isDirectory(packsPath)) {
+            return;
+        }
+        List<Path> packFiles;
+        try (Stream<Path> files = Files.list(packsPath)) {
+            packFiles = files.filter(file -> file.getFileName().toString().endsWith(EXTENSION)).sorted().toList();
+        }
+        readRemoved();
+        // one bad pack shouldn't hide the commits in the others
+        IOException failure = null;
+        for (Path file : packFiles) {
+            try {
+                map(file);
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads the removed file into {@link #removed}.
+     */
+    private void readRemoved() throws IOException {
+        if (!Files.exists(removedPath)) {
+            removedFileCurrent = true;
+            return;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(removedPath)));
+        byte[] magic = in.readNBytes(REMOVED_MAGIC.length);
+        if (!Arrays.equals(magic, REMOVED_MAGIC)) {
+            throw new IOException("Not a removed file: " + removedPath.getFileName());
+        }
+        int version = in.readUnsignedByte();
+        if (version != REMOVED_VERSION) {
+            throw new IOException("Unsupported removed file version " + version);
+        }
+        try {
+            while (in.available() > 0) {
+                String pack = CommitCodec.readString(in);
+                long commitTimestamp = in.readLong();
+                removed.computeIfAbsent(pack, name -> ConcurrentHashMap.newKeySet()).add(commitTimestamp);
+            }
+        } catch (EOFException e) {
+            // a truncated trailing record means the last append did not finish, and that commit was never removed
+        }
+        removedFileCurrent = true;
+    }
+
+    public boolean contains(long commitTimestamp) {
+        return locations.containsKey(commitTimestamp);
+    }
+
+    /**
+     * Opens a packed commit for reading, or returns null if it is not in a pack. The stream reads straight from the
+     * mapped pack.
+     */
+    public InputStream open(long commitTimestamp) {
+        ByteBuffer bytes = bytes(commitTimestamp);
+        return bytes == null ? null : new ByteBufferInputStream(bytes);
+    }
+
+    /**
+     * Returns a read-only view of a packed commit's file bytes, straight from the mapped pack, or null if it is not in
+     * a pack.
+     */
+    public ByteBuffer bytes(long commitTimestamp) {
+        Location location = locations.get(commitTimestamp);
+        if (location == null) {
+            return null;
+        }
+        return location.buffer.slice(location.offset, location.length);
+    }
+
+    /**
+     * Timestamps of every live commit in the packs.
+     */
+    public Set<Long> timestamps() {
+        return new HashSet<>(locations.keySet());
+    }
+
+    public int count() {
+        return locations.size();
+    }
+
+    public int packCount() {
+        return packSizes.size();
+    }
+
+    public long sizeBytes() {
+        long total = 0;
+        for (long size : packSizes.values()) {
+            total += size;
+        }
+        return total;
+    }
+
+    /**
+     * Writes the given commits (oldest first) into new packs and maps them. The caller deletes the loose files
+     * afterwards; until then both copies exist and the packed one is preferred.
+     */
+    public synchronized void write(List<Long> commitTimestamps, CommitSource source) throws IOException {
+        Files.createDirectories(packsPath);
+        int start = 0;
+        while (start < commitTimestamps.size()) {
+            start = writePack(commitTimestamps, start, source);
+        }
+    }
+
+    // writes commits from start onward until the pack gets too big, returns where the next pack starts
+    private int writePack(List<Long> commitTimestamps, int start, CommitSource source) throws IOException {
+        Path tempPath = packsPath.resolve("pack" + EXTENSION + ".tmp");
+        List<long[]> table = new ArrayList<>();
+        int end = start;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath), 1 << 16))) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            long offset = MAGIC.length + 1;
+            while (end < commitTimestamps.size() && (end == start || offset < MAX_PACK_BYTES)) {
+                long commitTimestamp = commitTimestamps.get(end);
+                byte[] bytes = source.read(commitTimestamp);
+                out.write(bytes);
+                table.add(new long[]{commitTimestamp, offset, bytes.length});
+                offset += bytes.length;
+                end++;
+            }
+            for (long[] entry : table) {
+                out.writeLong(entry[0]);
+                out.writeLong(entry[1]);
+                out.writeInt((int) entry[2]);
+            }
+            out.writeLong(offset);
+            out.writeInt(table.size());
+            out.write(MAGIC);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+
+        Path packPath = newPackPath(commitTimestamps.get(start), commitTimestamps.get(end - 1));
+        // removals left behind by an older pack of the same name, deleted before they were cleaned up
+        if (removed.remove(packPath.getFileName().toString()) != null) {
+            rewriteRemoved();
+        }
+        Files.move(tempPath, packPath, StandardCopyOption.ATOMIC_MOVE);
+        map(packPath);
+        return end;
+    }
+
+    // names a pack after its first and last commit, numbered when a pack of that name is still around
+    private Path newPackPath(long first, long last) {
+        Path packPath = packsPath.resolve(first + "-" + last + EXTENSION);
+        for (int n = 2; Files.exists(packPath) || packContents.containsKey(packPath); n++) {
+            packPath = packsPath.resolve(first + "-" + last + "-" + n + EXTENSION);
+        }
+        return packPath;
+    }
+
+    /**
+     * Stops serving a packed commit, in every pack that holds a copy of it. The packs themselves are left as they are.
+     */
+    public synchronized void remove(long commitTimestamp) throws IOException {
+        if (locations.remove(commitTimestamp) == null) {
+            return;
+        }
+        for (Map.Entry<Path, List<Long>> pack : packContents.entrySet()) {
+            if (pack.getValue().contains(commitTimestamp)) {
+                markRemoved(pack.getKey(), commitTimestamp);
+            }
+        }
+    }
+
+    private void markRemoved(Path pack, long commitTimestamp) throws IOException {
+        String name = pack.getFileName().toString();
+        if (!removed.computeIfAbsent(name, key -> ConcurrentHashMap.newKeySet()).add(commitTimestamp)) {
+            return;
+        }
+        if (!removedFileCurrent) {
+            rewriteRemoved();
+            return;
+        }
+        boolean created = !Files.exists(removedPath);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(removedPath, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+            if (created) {
+                out.write(REMOVED_MAGIC);
+                out.writeByte(REMOVED_VERSION);
+            }
+            CommitCodec.writeString(out, name);
+            out.writeLong(commitTimestamp);
+        }
+    }
+
+    private void map(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = buffer.capacity();
+        if (size < MAGIC.length + 1 + TRAILER_BYTES || !hasMagic(buffer, 0) || !hasMagic(buffer, size - MAGIC.length)) {
+            throw new IOException("Not a GitGud pack: " + file.getFileName());
+        }
+        if (buffer.get(MAGIC.length) != VERSION) {
+            throw new IOException("Unsupported pack version " + buffer.get(MAGIC.length) + " in " + file.getFileName());
+        }
+        long tableOffset = buffer.getLong(size - TRAILER_BYTES);
+        int count = buffer.getInt(size - TRAILER_BYTES + Long.BYTES);
+        if (tableOffset < 0 || tableOffset + (long) count * TABLE_ENTRY_BYTES != size - TRAILER_BYTES) {
+            throw new IOException("Corrupt offset table in " + file.getFileName());
+        }
+
+        ByteBuffer table = buffer.slice((int) tableOffset, count * TABLE_ENTRY_BYTES);
+        Set<Long> removedHere = removed.getOrDefault(file.getFileName().toString(), Set.of());
+        List<Long> contents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long commitTimestamp = table.getLong();
+            contents.add(commitTimestamp);
+            long offset = table.getLong();
+            int length = table.getInt();
+            if (!removedHere.contains(commitTimestamp)) {
+                locations.put(commitTimestamp, new Location(file, buffer, (int) offset, length));
+            }
+        }
+        packSizes.put(file, (long) size);
+        packContents.put(file, contents);
+    }
+
+    /**
+     * Copies the live commits of every pack holding removed commits into a new pack, and deletes the old one. The old
+     * pack's commits are all marked removed once the new pack is mapped, so if it cannot be deleted (some platforms
+     * refuse while it is mapped) it stays dead on disk and the next run retries. Buffers already handed out stay
+     * readable. Returns how many bytes were freed.
+     */
+    public synchronized long compact() throws IOException {
+        long sizeBefore = sizeBytes();
+        for (Path pack : new ArrayList<>(packContents.keySet())) {
+            List<Long> contents = packContents.get(pack);
+            if (contents == null) {
+                continue;
+            }
+            List<Long> live = new ArrayList<>();
+            for (long commitTimestamp : contents) {
+                Location location = locations.get(commitTimestamp);
+                if (location != null && location.pack.equals(pack)) {
+                    live.add(commitTimestamp);
+                }
+            }
+            if (live.size() == contents.size()) {
+                continue;
+            }
+
+            if (!live.isEmpty()) {
+                live.sort(Comparator.naturalOrder());
+                write(live, commitTimestamp -> {
+                    ByteBuffer bytes = bytes(commitTimestamp);
+                    byte[] copy = new byte[bytes.remaining()];
+                    bytes.get(copy);
+                    return copy;
+                });
+            }
+            // the live commits are served from the new pack now; until the old file is gone, nothing in it counts
+            for (long commitTimestamp : contents) {
+                markRemoved(pack, commitTimestamp);
+            }
+            try {
+                Files.deleteIfExists(pack);
+                packSizes.remove(pack);
+                packContents.remove(pack);
+            } catch (IOException e) {
+                // kept on the books, so its commits stay removed and the next compaction retries
+            }
+        }
+        rewriteRemoved();
+        return sizeBefore - sizeBytes();
+    }
+
+    // keeps only the removals of packs still on disk
+    private void rewriteRemoved() throws IOException {
+        removed.keySet().removeIf(name -> !Files.exists(packsPath.resolve(name)));
+        Files.createDirectories(packsPath);
+        Path tempPath = removedPath.resolveSibling(REMOVED_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.write(REMOVED_MAGIC);
+            out.writeByte(REMOVED_VERSION);
+            for (Map.Entry<String, Set<Long>> pack : removed.entrySet()) {
+                for (long commitTimestamp : pack.getValue()) {
+                    CommitCodec.writeString(out, pack.getKey());
+                    out.writeLong(commitTimestamp);
+                }
+            }
+        }
+        Files.move(tempPath, removedPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        removedFileCurrent = true;
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(offset + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package org.mattseq.gitgud.storage;
+
+/**
+ * Packs block coordinates into a single long so positions can be used as cheap map keys.
+ * x and z get 26 signed bits each, y gets 12.
+ */
+public final class PositionKeys {
+    private PositionKeys() {
+    }
+
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    public static int x(long key) {
+        return (int) (key >> 38);
+    }
+
+    public static int y(long key) {
+        return (int) (key << 52 >> 52);
+    }
+
+    public static int z(long key) {
+        return (int) (key << 26 >> 38);
+    }
+}
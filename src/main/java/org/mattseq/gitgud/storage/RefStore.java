@@ -0,0 +1,241 @@
+package org.mattseq.gitgud.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.mattseq.gitgud.GitGudPlugin;
+import org.mattseq.gitgud.dto.Tag;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * HEAD, CURRENT and tags, held in memory and written through to their files on every change.
+ * <p>
+ * Each file is replaced by writing a temp file and moving it over the old one, so a crash leaves either the old or the
+ * new value, never an empty file. Every move is also appended to {@code reflog} as one line:
+ * <pre>
+ * &lt;time millis&gt; &lt;ref&gt; &lt;old value&gt; &lt;new value&gt; &lt;reason&gt;
+ * </pre>
+ * where ref is {@code HEAD}, {@code CURRENT} or {@code tag/<name>}, and a deleted tag has the new value {@code -}. A ref
+ * file that cannot be read on startup is restored from the last reflog line for it.
+ */
+public class RefStore {
+    public static final String HEAD = "HEAD";
+    public static final String CURRENT = "CURRENT";
+    private static final String TAG_PREFIX = "tag/";
+    private static final String DELETED = "-";
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final Path headPath;
+    private final Path currentPath;
+    private final Path tagsPath;
+    private final Path reflogPath;
+
+    private volatile long head;
+    private volatile long current;
+    private final Map<String, Tag> tags = new TreeMap<>();
+
+    public RefStore(Path headPath, Path currentPath, Path tagsPath, Path reflogPath) {
+        this.headPath = headPath;
+        this.currentPath = currentPath;
+        this.tagsPath = tagsPath;
+        this.reflogPath = reflogPath;
+    }
+
+    /**
+     * Reads the refs from disk, creating missing files. CURRENT starts at HEAD when it has no file yet.
+     */
+    public synchronized void load() throws IOException {
+        Files.createDirectories(tagsPath);
+        Map<String, String> logged = null;
+
+        Long loadedHead = readRef(headPath);
+        if (loadedHead == null) {
+            logged = lastLoggedValues();
+            loadedHead = recover(HEAD, headPath, logged, 0);
+        }
+        head = loadedHead;
+
+        Long loadedCurrent = readRef(currentPath);
+        if (loadedCurrent == null) {
+            logged = logged == null ? lastLoggedValues() : logged;
+            loadedCurrent = recover(CURRENT, currentPath, logged, head);
+        }
+        current = loadedCurrent;
+
+        tags.clear();
+        try (Stream<Path> files = Files.list(tagsPath)) {
+            for (Path file : files.toList()) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                try {
+                    Tag tag = GSON.fromJson(Files.readString(file), Tag.class);
+                    if (tag != null) {
+                        tags.put(tag.name, tag);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    GitGudPlugin.LOGGER.atWarning().log("Skipping unreadable tag file " + file.getFileName() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static Long readRef(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            String content = Files.readString(path).trim();
+            return content.isEmpty() ? null : Long.parseLong(content);
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private long recover(String ref, Path path, Map<String, String> logged, long fallback) throws IOException {
+        String value = logged.get(ref);
+        long recovered = value == null || value.equals(DELETED) ? fallback : Long.parseLong(value);
+        if (Files.exists(path)) {
+            GitGudPlugin.LOGGER.atWarning().log(ref + " file was unreadable, restored " + recovered + " from the reflog");
+        }
+        writeAtomically(path, String.valueOf(recovered));
+        return recovered;
+    }
+
+    public long head() {
+        return head;
+    }
+
+    public long current() {
+        return current;
+    }
+
+    /**
+     * Moves HEAD and CURRENT together, writing only the files whose value changes and one reflog line for each.
+     */
+    public synchronized void update(long newHead, long newCurrent, String reason) throws IOException {
+        StringBuilder log = new StringBuilder();
+        if (newHead != head) {
+            writeAtomically(headPath, String.valueOf(newHead));
+            appendLine(log, HEAD, String.valueOf(head), String.valueOf(newHead), reason);
+            head = newHead;
+        }
+        if (newCurrent != current) {
+            writeAtomically(currentPath, String.valueOf(newCurrent));
+            appendLine(log, CURRENT, String.valueOf(current), String.valueOf(newCurrent), reason);
+            current = newCurrent;
+        }
+        appendReflog(log);
+    }
+
+    public synchronized Tag getTag(String name) {
+        return tags.get(name);
+    }
+
+    public synchronized List<Tag> listTags() {
+        return new ArrayList<>(tags.values());
+    }
+
+    /**
+     * Adds or moves a tag.
+     */
+    public synchronized void putTag(Tag tag) throws IOException {
+        writeAtomically(tagsPath.resolve(tag.name), GSON.toJson(tag));
+        Tag old = tags.put(tag.name, tag);
+        StringBuilder log = new StringBuilder();
+        appendLine(log, TAG_PREFIX + tag.name, old == null ? DELETED : String.valueOf(old.commitId), String.valueOf(tag.commitId), "tag add");
+        appendReflog(log);
+    }
+
+    /**
+     * Deletes a tag. Returns false if there was no tag with that name.
+     */
+    public synchronized boolean removeTag(String name) throws IOException {
+        Tag old = tags.get(name);
+        if (old == null) {
+            return false;
+        }
+        Files.deleteIfExists(tagsPath.resolve(name));
+        tags.remove(name);
+        StringBuilder log = new StringBuilder();
+        appendLine(log, TAG_PREFIX + name, String.valueOf(old.commitId), DELETED, "tag del");
+        appendReflog(log);
+        return true;
+    }
+
+    /**
+     * Returns up to {@code limit} reflog lines, newest first.
+     */
+    public synchronized List<String> readReflog(int limit) throws IOException {
+        List<String> entries = new ArrayList<>();
+        if (!Files.exists(reflogPath)) {
+            return entries;
+        }
+        List<String> lines = Files.readAllLines(reflogPath, StandardCharsets.UTF_8);
+        for (int i = lines.size() - 1; i >= 0 && entries.size() < limit; i--) {
+            if (!lines.get(i).isBlank()) {
+                entries.add(lines.get(i));
+            }
+        }
+        return entries;
+    }
+
+    // ref -> its value in the last reflog line that moved it
+    private Map<String, String> lastLoggedValues() throws IOException {
+        Map<String, String> values = new TreeMap<>();
+        if (!Files.exists(reflogPath)) {
+            return values;
+        }
+        for (String line : Files.readAllLines(reflogPath, StandardCharsets.UTF_8)) {
+            String[] parts = line.split(" ", 5);
+            // a torn last line from a crash is skipped
+            if (parts.length >= 4 && (parts[3].equals(DELETED) || parts[3].chars().allMatch(Character::isDigit))) {
+                values.put(parts[1], parts[3]);
+            }
+        }
+        return values;
+    }
+
+    private static void appendLine(StringBuilder log, String ref, String oldValue, String newValue, String reason) {
+        // one entry per line, whatever the commit message holds
+        String cleanReason = reason.replace('\n', ' ').replace('\r', ' ');
+        log.append(System.currentTimeMillis()).append(' ').append(ref).append(' ').append(oldValue).append(' ')
+                .append(newValue).append(' ').append(cleanReason).append('\n');
+    }
+
+    private void appendReflog(StringBuilder log) throws IOException {
+        if (log.isEmpty()) {
+            return;
+        }
+        Files.writeString(reflogPath, log, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Replaces a file by writing a synced temp file next to it and moving it into place.
+     */
+    static void writeAtomically(Path path, String content) throws IOException {
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
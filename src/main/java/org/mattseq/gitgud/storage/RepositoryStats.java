@@ -0,0 +1,104 @@
+package org.mattseq.gitgud.storage;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Repository totals kept up to date as commits are added and removed, so status never has to walk history or list
+ * directories. Written after every change next to HEAD and CURRENT:
+ * <pre>
+ * "GGST"  magic
+ * u8      format version
+ * long    commit count
+ * long    total block changes over all commits
+ * long    bytes of commit storage (loose commit files and packs)
+ * </pre>
+ */
+public class RepositoryStats {
+    private static final byte[] MAGIC = {'G', 'G', 'S', 'T'};
+    private static final int VERSION = 1;
+
+    private final Path statsPath;
+    private long commitCount;
+    private long totalChanges;
+    private long commitBytes;
+
+    public RepositoryStats(Path statsPath) {
+        this.statsPath = statsPath;
+    }
+
+    /**
+     * Loads the totals from disk. Returns false if the file is missing or unreadable, in which case the caller should
+     * {@link #reset} them.
+     */
+    public synchronized boolean load() {
+        if (!Files.exists(statsPath)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(statsPath)))) {
+            byte[] magic = in.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION) {
+                return false;
+            }
+            commitCount = in.readLong();
+            totalChanges = in.readLong();
+            commitBytes = in.readLong();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public synchronized void reset(long commitCount, long totalChanges, long commitBytes) throws IOException {
+        this.commitCount = commitCount;
+        this.totalChanges = totalChanges;
+        this.commitBytes = commitBytes;
+        save();
+    }
+
+    public synchronized void commitAdded(long changes, long bytes) throws IOException {
+        commitCount++;
+        totalChanges += changes;
+        commitBytes += bytes;
+        save();
+    }
+
+    public synchronized void commitRemoved(long changes, long bytes) throws IOException {
+        commitCount = Math.max(0, commitCount - 1);
+        totalChanges = Math.max(0, totalChanges - changes);
+        commitBytes = Math.max(0, commitBytes - bytes);
+        save();
+    }
+
+    public synchronized void setCommitBytes(long bytes) throws IOException {
+        commitBytes = bytes;
+        save();
+    }
+
+    public synchronized long getCommitCount() {
+        return commitCount;
+    }
+
+    public synchronized long getTotalChanges() {
+        return totalChanges;
+    }
+
+    public synchronized long getCommitBytes() {
+        return commitBytes;
+    }
+
+    private void save() throws IOException {
+        Path tempPath = statsPath.resolveSibling(statsPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(commitCount);
+            out.writeLong(totalChanges);
+            out.writeLong(commitBytes);
+        }
+        Files.move(tempPath, statsPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,297 @@
+package org.mattseq.gitgud.storage;
+
+import org.mattseq.gitgud.dto.Region;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Persistent index from 16x16x16 block cells to the commits that changed something inside them, so blame and region
+ * history only decode the commits that can actually matter.
+ * <p>
+ * The file is a header followed by one record per commit: either the cells it touched with a change count for each,
+ * or a tombstone when the commit is deleted. Records are only ever appended.
+ */
+public class SpatialIndex {
+    public static final int CELL_BITS = 4;
+    public static final int CELL_SIZE = 1 << CELL_BITS;
+
+    private static final byte[] MAGIC = {'G', 'G', 'S', 'P'};
+    private static final int VERSION = 1;
+    private static final int RECORD_ADD = 1;
+    private static final int RECORD_REMOVE = 2;
+
+    /**
+     * A commit found by {@link #query}. Changes in cells that lie completely inside the region are counted exactly;
+     * cells cut by the region's edge only say that the commit needs scanning.
+     */
+    public static final class RegionMatch {
+        public final long commitTimestamp;
+        public int changesInFullCells;
+        public boolean touchesPartialCells;
+
+        RegionMatch(long commitTimestamp) {
+            this.commitTimestamp = commitTimestamp;
+        }
+    }
+
+    // commits and counts for one cell, sorted oldest commit first
+    private static final class Postings {
+        long[] commits = new long[4];
+        int[] counts = new int[4];
+        int size;
+
+        void add(long commit, int count) {
+            if (size == commits.length) {
+                commits = Arrays.copyOf(commits, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            // new commits are usually the newest, but a squash re-adds an older timestamp after newer commits
+            int index = size;
+            if (size > 0 && commits[size - 1] > commit) {
+                index = -Arrays.binarySearch(commits, 0, size, commit) - 1;
+                System.arraycopy(commits, index, commits, index + 1, size - index);
+                System.arraycopy(counts, index, counts, index + 1, size - index);
+            }
+            commits[index] = commit;
+            counts[index] = count;
+            size++;
+        }
+
+        void remove(long commit) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (commits[i] == commit) {
+                    System.arraycopy(commits, i + 1, commits, i, size - i - 1);
+                    System.arraycopy(counts, i + 1, counts, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+
+    private final Path indexPath;
+    private final Map<Long, Postings> cells = new HashMap<>();
+    private final Map<Long, long[]> cellsByCommit = new HashMap<>();
+
+    public SpatialIndex(Path indexPath) {
+        this.indexPath = indexPath;
+    }
+
+    public static long cellKey(int x, int y, int z) {
+        return PositionKeys.pack(x >> CELL_BITS, y >> CELL_BITS, z >> CELL_BITS);
+    }
+
+    /**
+     * Loads the index from disk. Returns false if the file is missing or unreadable, in which case the caller should
+     * {@link #reset()} it and add every commit again.
+     */
+    public synchronized boolean load() {
+        clear();
+        if (!Files.exists(indexPath)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            byte[] magic = in.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION) {
+                return false;
+            }
+            while (in.available() > 0) {
+                int type = in.readUnsignedByte();
+                long commit = in.readLong();
+                if (type == RECORD_REMOVE) {
+                    removeInMemory(commit);
+                    continue;
+                }
+                int cellCount = CommitCodec.readVarInt(in);
+                long[] keys = new long[cellCount];
+                int[] counts = new int[cellCount];
+                for (int i = 0; i < cellCount; i++) {
+                    keys[i] = in.readLong();
+                    counts[i] = CommitCodec.readVarInt(in);
+                }
+                addInMemory(commit, keys, counts);
+            }
+            return true;
+        } catch (IOException e) {
+            // a truncated trailing record means the last append did not finish
+            clear();
+            return false;
+        }
+    }
+
+    /**
+     * Empties the index and replaces the file with an empty one.
+     */
+    public synchronized void reset() throws IOException {
+        clear();
+        Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tempPath)) {
+            out.write(MAGIC);
+            out.write(VERSION);
+        }
+        Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public synchronized void add(long commitTimestamp, ChangeBuffer changes) throws IOException {
+        Map<Long, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            counts.merge(cellKey(changes.x(i), changes.y(i), changes.z(i)), 1, Integer::sum);
+        }
+        long[] keys = new long[counts.size()];
+        int[] cellCounts = new int[counts.size()];
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            keys[i] = entry.getKey();
+            cellCounts[i] = entry.getValue();
+            i++;
+        }
+
+        if (!Files.exists(indexPath)) {
+            reset();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath, StandardOpenOption.APPEND)))) {
+            out.writeByte(RECORD_ADD);
+            out.writeLong(commitTimestamp);
+            CommitCodec.writeVarInt(out, keys.length);
+            for (int j = 0; j < keys.length; j++) {
+                out.writeLong(keys[j]);
+                CommitCodec.writeVarInt(out, cellCounts[j]);
+            }
+        }
+        addInMemory(commitTimestamp, keys, cellCounts);
+    }
+
+    public synchronized void remove(long commitTimestamp) throws IOException {
+        if (!cellsByCommit.containsKey(commitTimestamp)) {
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath, StandardOpenOption.APPEND)))) {
+            out.writeByte(RECORD_REMOVE);
+            out.writeLong(commitTimestamp);
+        }
+        removeInMemory(commitTimestamp);
+    }
+
+    public synchronized boolean contains(long commitTimestamp) {
+        return cellsByCommit.containsKey(commitTimestamp);
+    }
+
+    /**
+     * Number of commits in the index.
+     */
+    public synchronized int size() {
+        return cellsByCommit.size();
+    }
+
+    /**
+     * Commits that changed something in the cell holding the given block, newest first.
+     */
+    public synchronized long[] commitsAt(int x, int y, int z) {
+        Postings postings = cells.get(cellKey(x, y, z));
+        if (postings == null) {
+            return new long[0];
+        }
+        long[] commits = new long[postings.size];
+        for (int i = 0; i < postings.size; i++) {
+            commits[i] = postings.commits[postings.size - 1 - i];
+        }
+        return commits;
+    }
+
+    /**
+     * Commits that changed something in a cell overlapping the region, newest first.
+     */
+    public synchronized List<RegionMatch> query(Region region) {
+        int minCellX = region.minX >> CELL_BITS, minCellY = region.minY >> CELL_BITS, minCellZ = region.minZ >> CELL_BITS;
+        int maxCellX = region.maxX >> CELL_BITS, maxCellY = region.maxY >> CELL_BITS, maxCellZ = region.maxZ >> CELL_BITS;
+
+        Map<Long, RegionMatch> matches = new HashMap<>();
+        long regionCells = (long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1) * (maxCellZ - minCellZ + 1);
+        if (regionCells > cells.size()) {
+            // a huge region holds more cells than have ever been touched, so walk the touched ones instead
+            for (Map.Entry<Long, Postings> entry : cells.entrySet()) {
+                long key = entry.getKey();
+                int cellX = PositionKeys.x(key), cellY = PositionKeys.y(key), cellZ = PositionKeys.z(key);
+                if (cellX >= minCellX && cellX <= maxCellX && cellY >= minCellY && cellY <= maxCellY && cellZ >= minCellZ && cellZ <= maxCellZ) {
+                    collect(matches, entry.getValue(), cellInside(region, cellX, cellY, cellZ));
+                }
+            }
+        } else {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                    for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                        Postings postings = cells.get(PositionKeys.pack(cellX, cellY, cellZ));
+                        if (postings != null) {
+                            collect(matches, postings, cellInside(region, cellX, cellY, cellZ));
+                        }
+                    }
+                }
+            }
+        }
+
+        List<RegionMatch> result = new ArrayList<>(matches.values());
+        result.sort(Comparator.comparingLong((RegionMatch match) -> match.commitTimestamp).reversed());
+        return result;
+    }
+
+    private static void collect(Map<Long, RegionMatch> matches, Postings postings, boolean inside) {
+        for (int i = 0; i < postings.size; i++) {
+            RegionMatch match = matches.computeIfAbsent(postings.commits[i], RegionMatch::new);
+            if (inside) {
+                match.changesInFullCells += postings.counts[i];
+            } else {
+                match.touchesPartialCells = true;
+            }
+        }
+    }
+
+    /**
+     * Commit timestamps that changed something in a cell overlapping the region.
+     */
+    public synchronized Set<Long> commitsIn(Region region) {
+        Set<Long> commits = new HashSet<>();
+        for (RegionMatch match : query(region)) {
+            commits.add(match.commitTimestamp);
+        }
+        return commits;
+    }
+
+    public static boolean cellInside(Region region, int cellX, int cellY, int cellZ) {
+        int x = cellX << CELL_BITS, y = cellY << CELL_BITS, z = cellZ << CELL_BITS;
+        return region.encloses(x, y, z, x + CELL_SIZE - 1, y + CELL_SIZE - 1, z + CELL_SIZE - 1);
+    }
+
+    private void addInMemory(long commit, long[] keys, int[] counts) {
+        removeInMemory(commit);
+        for (int i = 0; i < keys.length; i++) {
+            cells.computeIfAbsent(keys[i], key -> new Postings()).add(commit, counts[i]);
+        }
+        cellsByCommit.put(commit, keys);
+    }
+
+    private void removeInMemory(long commit) {
+        long[] keys = cellsByCommit.remove(commit);
+        if (keys == null) {
+            return;
+        }
+        for (long key : keys) {
+            Postings postings = cells.get(key);
+            if (postings != null) {
+                postings.remove(commit);
+                if (postings.size == 0) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        cells.clear();
+        cellsByCommit.clear();
+    }
+}
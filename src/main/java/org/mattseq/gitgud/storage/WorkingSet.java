@@ -0,0 +1,243 @@
+package org.mattseq.gitgud.storage;
+
+import org.mattseq.gitgud.dto.BlockChange;
+import org.mattseq.gitgud.dto.Region;
+
+/**
+ * Uncommitted block changes.
+ * <p>
+ * By default only the net change per position is kept: the block before the first edit and the block after the last
+ * one. Positions that end up back where they started are dropped. With {@code keepEveryChange} enabled, every raw
+ * event is kept in order instead.
+ * <p>
+ * Changes passed to {@link #add} are also remembered as not yet journaled until they are taken with
+ * {@link #drainUnjournaled()} or covered by a {@link #checkpoint()}.
+ */
+public class WorkingSet {
+    // net changes in the order their positions were first touched; slots whose position was dropped stay behind as
+    // garbage until the buffer is compacted
+    private ChangeBuffer netChanges = new ChangeBuffer();
+    private final LongIntMap slots = new LongIntMap();
+    private final ChangeBuffer everyChange = new ChangeBuffer();
+    private ChangeBuffer unjournaled = new ChangeBuffer();
+    private boolean keepEveryChange;
+
+    public synchronized void setKeepEveryChange(boolean keepEveryChange) {
+        if (this.keepEveryChange == keepEveryChange) {
+            return;
+        }
+        ChangeBuffer changes = snapshot();
+        clearChanges();
+        this.keepEveryChange = keepEveryChange;
+        addAll(changes);
+    }
+
+    /**
+     * Records a new change, which still has to be written to the journal.
+     */
+    public synchronized void add(BlockChange change) {
+        add(change.position.x, change.position.y, change.position.z, change.oldBlock, change.newBlock, change.timestamp);
+    }
+
+    public synchronized void add(int x, int y, int z, int oldBlock, int newBlock, long timestamp) {
+        apply(x, y, z, oldBlock, newBlock, timestamp);
+        unjournaled.add(x, y, z, oldBlock, newBlock, timestamp);
+    }
+
+    private void apply(int x, int y, int z, int oldBlock, int newBlock, long timestamp) {
+        if (keepEveryChange) {
+            everyChange.add(x, y, z, oldBlock, newBlock, timestamp);
+            return;
+        }
+        long key = PositionKeys.pack(x, y, z);
+        int slot = slots.get(key);
+        if (slot == LongIntMap.MISSING) {
+            if (oldBlock != newBlock) {
+                slots.put(key, netChanges.size());
+                netChanges.add(x, y, z, oldBlock, newBlock, timestamp);
+            }
+            return;
+        }
+        if (netChanges.oldBlock(slot) == newBlock) {
+            removeSlot(key);
+        } else {
+            netChanges.setNewBlock(slot, newBlock, timestamp);
+        }
+    }
+
+    /**
+     * Adds changes that are already durable (replayed from the journal or an old stash) in the given order, as if they
+     * had happened after everything already in the set.
+     */
+    public synchronized void addAll(ChangeBuffer changes) {
+        for (int i = 0; i < changes.size(); i++) {
+            apply(changes.x(i), changes.y(i), changes.z(i), changes.oldBlock(i), changes.newBlock(i), changes.timestamp(i));
+        }
+    }
+
+    /**
+     * Puts changes that happened before everything currently in the set underneath it.
+     */
+    public synchronized void addAllOlder(ChangeBuffer changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        ChangeBuffer newer = snapshot();
+        clearChanges();
+        addAll(changes);
+        addAll(newer);
+    }
+
+    public synchronized int size() {
+        return keepEveryChange ? everyChange.size() : slots.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public synchronized ChangeBuffer snapshot() {
+        if (keepEveryChange) {
+            return everyChange.copy();
+        }
+        ChangeBuffer changes = new ChangeBuffer(slots.size());
+        for (int i = 0; i < netChanges.size(); i++) {
+            if (isLive(i)) {
+                changes.add(netChanges, i);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Takes the changes added since the last call, in the order they happened.
+     */
+    public synchronized ChangeBuffer drainUnjournaled() {
+        ChangeBuffer changes = unjournaled;
+        unjournaled = new ChangeBuffer();
+        return changes;
+    }
+
+    /**
+     * Puts changes back in front of the unjournaled list after a failed journal write.
+     */
+    public synchronized void requeueUnjournaled(ChangeBuffer changes) {
+        ChangeBuffer requeued = new ChangeBuffer(changes.size() + unjournaled.size());
+        requeued.addAll(changes);
+        requeued.addAll(unjournaled);
+        unjournaled = requeued;
+    }
+
+    public synchronized int unjournaledCount() {
+        return unjournaled.size();
+    }
+
+    /**
+     * Returns the whole set for a journal checkpoint. Everything added so far counts as journaled once the checkpoint is
+     * written.
+     */
+    public synchronized ChangeBuffer checkpoint() {
+        unjournaled.clear();
+        return snapshot();
+    }
+
+    /**
+     * Returns every change in the set and empties it.
+     */
+    public synchronized ChangeBuffer drain() {
+        ChangeBuffer changes = snapshot();
+        clear();
+        return changes;
+    }
+
+    /**
+     * Returns the changes inside the region, in the order they happened, and removes them from the set. Changes outside
+     * the region are left alone.
+     */
+    public synchronized ChangeBuffer drain(Region region) {
+        ChangeBuffer changes;
+        if (keepEveryChange) {
+            changes = everyChange.inside(region);
+            everyChange.removeIf(i -> everyChange.contains(region, i));
+        } else {
+            changes = new ChangeBuffer();
+            for (int i = 0; i < netChanges.size(); i++) {
+                if (netChanges.contains(region, i) && isLive(i)) {
+                    changes.add(netChanges, i);
+                }
+            }
+            // removing may compact the buffer, so only after walking it
+            for (int i = 0; i < changes.size(); i++) {
+                removeSlot(changes.positionKey(i));
+            }
+        }
+        unjournaled.removeIf(i -> unjournaled.contains(region, i));
+        return changes;
+    }
+
+    /**
+     * Removes changes taken from an earlier {@link #snapshot()} once they have been committed. Positions edited again
+     * since the snapshot keep the part of their change that is not covered by the commit.
+     */
+    public synchronized void removeCommitted(ChangeBuffer committed) {
+        if (keepEveryChange) {
+            // the snapshot was everything in the list, and since then changes have only been appended (anything that
+            // removes changes runs under the same lock as the commit)
+            everyChange.removeFirst(committed.size());
+            return;
+        }
+        for (int i = 0; i < committed.size(); i++) {
+            long key = committed.positionKey(i);
+            int slot = slots.get(key);
+            int committedBlock = committed.newBlock(i);
+            if (slot == LongIntMap.MISSING) {
+                // edited back to its original block after the snapshot, which now undoes the commit
+                slots.put(key, netChanges.size());
+                netChanges.add(committed.x(i), committed.y(i), committed.z(i), committedBlock, committed.oldBlock(i), System.currentTimeMillis());
+            } else if (netChanges.newBlock(slot) == committedBlock) {
+                removeSlot(key);
+            } else {
+                // the rest of the change now starts from the committed block
+                netChanges.setOldBlock(slot, committedBlock);
+            }
+        }
+    }
+
+    /**
+     * The net uncommitted change at a position, or null if it has not been touched since the last commit.
+     */
+    public synchronized BlockChange get(int x, int y, int z) {
+        int slot = slots.get(PositionKeys.pack(x, y, z));
+        return slot == LongIntMap.MISSING ? null : netChanges.get(slot);
+    }
+
+    public synchronized void clear() {
+        clearChanges();
+        unjournaled.clear();
+    }
+
+    private void clearChanges() {
+        netChanges.clear();
+        slots.clear();
+        everyChange.clear();
+    }
+
+    private boolean isLive(int slot) {
+        return slots.get(netChanges.positionKey(slot)) == slot;
+    }
+
+    private void removeSlot(long key) {
+        slots.remove(key);
+        // compact once most of the buffer is garbage
+        if (netChanges.size() > 64 && netChanges.size() > slots.size() * 2) {
+            ChangeBuffer live = new ChangeBuffer(slots.size() * 2);
+            for (int i = 0; i < netChanges.size(); i++) {
+                if (isLive(i)) {
+                    slots.put(netChanges.positionKey(i), live.size());
+                    live.add(netChanges, i);
+                }
+            }
+            netChanges = live;
+        }
+    }
+}
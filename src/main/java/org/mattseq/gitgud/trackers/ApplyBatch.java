@@ -0,0 +1,172 @@
+package org.mattseq.gitgud.trackers;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import org.mattseq.gitgud.storage.BlockPalette;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A group of world edits produced by one repository operation (rollback, revert, checkout).
+ * <p>
+ * Batches are applied in submission order by {@link WorldEditApplySystem}, a bounded slice per tick, and resume where
+ * they left off on the next tick. Listeners are called on the tick thread.
+ */
+public class ApplyBatch {
+    public interface Listener {
+        default void onProgress(ApplyBatch batch) {
+        }
+
+        default void onComplete(ApplyBatch batch) {
+        }
+    }
+
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long id = NEXT_ID.getAndIncrement();
+    private final String description;
+    private final ArrayList<WorldEdit> edits = new ArrayList<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile int applied;
+    private volatile boolean cancelled;
+    private volatile boolean completed;
+
+    public ApplyBatch(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Queues a block to be written. {@code block} is a {@link BlockPalette} index.
+     */
+    public void add(int x, int y, int z, int block) {
+        if (completed) {
+            throw new IllegalStateException("Cannot add edits to a completed batch");
+        }
+        edits.add(new WorldEdit(ChunkUtil.indexChunkFromBlock(x, z), x, y, z, block));
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int size() {
+        return edits.size();
+    }
+
+    public int getApplied() {
+        return applied;
+    }
+
+    public int getRemaining() {
+        return edits.size() - applied;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Stops the batch before its next slice. Edits already written stay in the world.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Registers a listener. If the batch has already completed, {@link Listener#onComplete} is called right away.
+     */
+    public void addListener(Listener listener) {
+        synchronized (listeners) {
+            if (!completed) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.onComplete(this);
+    }
+
+    /**
+     * Groups the edits by chunk so each chunk is looked up and marked dirty once. The sort is stable, so repeated
+     * edits to the same block keep their relative order and the last one still wins.
+     */
+    void sortByChunk() {
+        edits.sort(Comparator.comparingLong(WorldEdit::chunkIndex));
+    }
+
+    /**
+     * Writes up to {@code maxEdits} edits, stopping early once {@code deadlineNanos} has passed.
+     * Returns the number of edits written.
+     */
+    int applyTo(World world, int maxEdits, long deadlineNanos) {
+        int end = Math.min(edits.size(), applied + maxEdits);
+        int start = applied;
+        int index = start;
+        while (index < end) {
+            long chunkIndex = edits.get(index).chunkIndex();
+            // resolve (and if needed load) the chunk once for the whole run of edits inside it
+            WorldChunk chunk = world.getChunk(chunkIndex);
+            boolean outOfTime = false;
+            while (index < end && edits.get(index).chunkIndex() == chunkIndex) {
+                WorldEdit edit = edits.get(index++);
+                String blockId = BlockPalette.name(edit.block());
+                if (chunk != null) {
+                    chunk.setBlock(edit.x(), edit.y(), edit.z(), blockId);
+                } else {
+                    world.setBlock(edit.x(), edit.y(), edit.z(), blockId);
+                }
+                // checking the clock is not free, so only do it every few edits
+                if ((index & 63) == 0 && System.nanoTime() >= deadlineNanos) {
+                    outOfTime = true;
+                    break;
+                }
+            }
+            if (chunk != null) {
+                chunk.markNeedsSaving();
+            }
+            if (outOfTime) {
+                break;
+            }
+        }
+        applied = index;
+        return index - start;
+    }
+
+    void notifyProgress() {
+        for (Listener listener : listeners) {
+            listener.onProgress(this);
+        }
+    }
+
+    void complete() {
+        synchronized (listeners) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+        }
+        for (Listener listener : listeners) {
+            listener.onComplete(this);
+        }
+        listeners.clear();
+    }
+
+    boolean isFinished() {
+        return cancelled || applied >= edits.size();
+    }
+
+    record WorldEdit(long chunkIndex, int x, int y, int z, int block) {
+    }
+}
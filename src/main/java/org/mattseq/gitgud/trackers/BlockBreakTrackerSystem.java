@@ -11,22 +11,36 @@ import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import org.mattseq.gitgud.dto.BlockChange;
 import org.mattseq.gitgud.GitGudPlugin;
 import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.metrics.LatencyHistogram;
+import org.mattseq.gitgud.metrics.Metrics;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.concurrent.atomic.LongAdder;
 
 public class BlockBreakTrackerSystem extends EntityEventSystem<EntityStore, BreakBlockEvent> {
+    private static final LongAdder events = Metrics.counter("tracking.breaks");
+    // the whole handler, including logging, as the game thread pays for it
+    private static final LatencyHistogram handleLatency = Metrics.latency("tracking.breakHandle");
+
     public BlockBreakTrackerSystem() {
         super(BreakBlockEvent.class);
     }
 
     @Override
     public void handle(int i, @Nonnull ArchetypeChunk<EntityStore> archetypeChunk, @Nonnull Store<EntityStore> store, @Nonnull CommandBuffer<EntityStore> commandBuffer, @Nonnull BreakBlockEvent breakBlockEvent) {
-        if (breakBlockEvent.getBlockType().getId().equals("Empty")) {
-            return;
+        long start = System.nanoTime();
+        try {
+            if (breakBlockEvent.getBlockType().getId().equals("Empty")) {
+                return;
+            }
+            Repository.trackBlockChange(store.getExternalData().getWorld(), new BlockChange(breakBlockEvent.getTargetBlock(), breakBlockEvent.getBlockType().getId(), "Empty"));
+            // every block broken passes through here, so the message is only built when fine logging is on
+            GitGudPlugin.LOGGER.atFine().log("Block broken at %s with ID %s", breakBlockEvent.getTargetBlock(), breakBlockEvent.getBlockType().getId());
+            events.increment();
+        } finally {
+            handleLatency.recordSince(start);
         }
-        Repository.addBlockChange(new BlockChange(breakBlockEvent.getTargetBlock(), breakBlockEvent.getBlockType().getId(), "Empty"), true);
-        GitGudPlugin.LOGGER.atInfo().log("Block broken at " + breakBlockEvent.getTargetBlock() + " with ID " + breakBlockEvent.getBlockType().getId());
     }
 
     @Nullable
@@ -11,20 +11,34 @@ import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import org.mattseq.gitgud.dto.BlockChange;
 import org.mattseq.gitgud.GitGudPlugin;
 import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.metrics.LatencyHistogram;
+import org.mattseq.gitgud.metrics.Metrics;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.concurrent.atomic.LongAdder;
 
 public class BlockPlaceTrackerSystem extends EntityEventSystem<EntityStore, PlaceBlockEvent> {
+    private static final LongAdder events = Metrics.counter("tracking.places");
+    // the whole handler, including logging, as the game thread pays for it
+    private static final LatencyHistogram handleLatency = Metrics.latency("tracking.placeHandle");
+
     public BlockPlaceTrackerSystem() {
         super(PlaceBlockEvent.class);
     }
 
     @Override
     public void handle(int i, @Nonnull ArchetypeChunk<EntityStore> archetypeChunk, @Nonnull Store<EntityStore> store, @Nonnull CommandBuffer<EntityStore> commandBuffer, @Nonnull PlaceBlockEvent placeBlockEvent) {
-        assert placeBlockEvent.getItemInHand() != null;
-        Repository.addBlockChange(new BlockChange(placeBlockEvent.getTargetBlock(), "Empty", placeBlockEvent.getItemInHand().getItem().getBlockId()), true);
-        GitGudPlugin.LOGGER.atInfo().log("Block placed at " + placeBlockEvent.getTargetBlock() + " with ID " + placeBlockEvent.getItemInHand().getItemId());
+        long start = System.nanoTime();
+        try {
+            assert placeBlockEvent.getItemInHand() != null;
+            Repository.trackBlockChange(store.getExternalData().getWorld(), new BlockChange(placeBlockEvent.getTargetBlock(), "Empty", placeBlockEvent.getItemInHand().getItem().getBlockId()));
+            // every block placed passes through here, so the message is only built when fine logging is on
+            GitGudPlugin.LOGGER.atFine().log("Block placed at %s with ID %s", placeBlockEvent.getTargetBlock(), placeBlockEvent.getItemInHand().getItemId());
+            events.increment();
+        } finally {
+            handleLatency.recordSince(start);
+        }
     }
 
     @Nullable
@@ -1,41 +1,127 @@
 package org.mattseq.gitgud.trackers;
 
-import com.hypixel.hytale.component.Archetype;
-import com.hypixel.hytale.component.ArchetypeChunk;
-import com.hypixel.hytale.component.CommandBuffer;
 import com.hypixel.hytale.component.Store;
-import com.hypixel.hytale.component.query.Query;
-import com.hypixel.hytale.component.system.tick.EntityTickingSystem;
-import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.component.system.tick.TickingSystem;
+import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import org.checkerframework.checker.nullness.compatqual.NonNullDecl;
-import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+import org.mattseq.gitgud.Repository;
+import org.mattseq.gitgud.dto.Config;
+import org.mattseq.gitgud.metrics.LatencyHistogram;
+import org.mattseq.gitgud.metrics.Metrics;
+import org.mattseq.gitgud.storage.BlockPalette;
 
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 
-public class WorldEditApplySystem extends EntityTickingSystem<EntityStore> {
-    private static final Queue<WorldEdit> pendingEdits = new ConcurrentLinkedQueue<>();
+/**
+ * Writes queued block changes into the world they belong to. Every world has its own queue, drained only by that
+ * world's tick, so a long checkout in one world never holds up edits in another.
+ * <p>
+ * This is a store-level system: each world's entity store ticks it exactly once per world tick, whatever entities
+ * the world holds, so the budget applies per tick.
+ */
+public class WorldEditApplySystem extends TickingSystem<EntityStore> {
+    // world name -> batches waiting for that world's tick
+    private static final Map<String, Queue<ApplyBatch>> pendingBatches = new ConcurrentHashMap<>();
 
-    public static void enqueue(int x, int y, int z, String blockId) {
-        pendingEdits.add(new WorldEdit(x, y, z, blockId));
+    private static final LongAdder editsApplied = Metrics.counter("apply.edits");
+    private static final LatencyHistogram tickLatency = Metrics.latency("apply.tick");
+
+    public static void enqueue(String worldName, int x, int y, int z, String blockId) {
+        ApplyBatch batch = new ApplyBatch("edit");
+        batch.add(x, y, z, BlockPalette.id(blockId));
+        submit(worldName, batch);
     }
 
-    @Override
-    public void tick(float v, int i, @NonNullDecl ArchetypeChunk<EntityStore> archetypeChunk, @NonNullDecl Store<EntityStore> store, @NonNullDecl CommandBuffer<EntityStore> commandBuffer) {
-        WorldEdit edit;
-        while ((edit = pendingEdits.poll()) != null) {
-            Objects.requireNonNull(Universe.get().getDefaultWorld()).setBlock(edit.x, edit.y, edit.z, edit.blockId);
+    public static void submit(String worldName, ApplyBatch batch) {
+        if (batch.size() == 0) {
+            batch.complete();
+            return;
+        }
+        // sort on the submitting thread so the tick only has to write
+        batch.sortByChunk();
+        pendingBatches.computeIfAbsent(worldName, name -> new ConcurrentLinkedQueue<>()).add(batch);
+    }
+
+    public static List<ApplyBatch> getPendingBatches(String worldName) {
+        Queue<ApplyBatch> queue = pendingBatches.get(worldName);
+        return queue == null ? new ArrayList<>() : new ArrayList<>(queue);
+    }
+
+    public static long getPendingEditCount(String worldName) {
+        long count = 0;
+        for (ApplyBatch batch : getPendingBatches(worldName)) {
+            count += batch.getRemaining();
+        }
+        return count;
+    }
+
+    /**
+     * Edits still waiting in every world's queue.
+     */
+    public static long getPendingEditCount() {
+        long count = 0;
+        for (String worldName : pendingBatches.keySet()) {
+            count += getPendingEditCount(worldName);
         }
+        return count;
+    }
+
+    public static long getPendingBatchCount() {
+        long count = 0;
+        for (Queue<ApplyBatch> queue : pendingBatches.values()) {
+            count += queue.size();
+        }
+        return count;
     }
 
-    @NullableDecl
     @Override
-    public Query<EntityStore> getQuery() {
-        return Archetype.empty();
+    public void tick(float dt, int systemIndex, @NonNullDecl Store<EntityStore> store) {
+        drain(store.getExternalData().getWorld());
     }
 
-    private record WorldEdit(int x, int y, int z, String blockId) {
+    private static void drain(World world) {
+        Queue<ApplyBatch> pendingBatches = WorldEditApplySystem.pendingBatches.get(world.getName());
+        if (pendingBatches == null || pendingBatches.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Config config = Repository.getConfig();
+        int budget = config.applyMaxEditsPerTick;
+        long deadline = start + config.applyMaxNanosPerTick;
+
+        // drop cancelled batches right away instead of waiting for the ones ahead of them to finish
+        for (ApplyBatch pending : pendingBatches) {
+            if (pending.isCancelled() && pendingBatches.remove(pending)) {
+                pending.complete();
+            }
+        }
+
+        ApplyBatch batch;
+        while ((batch = pendingBatches.peek()) != null) {
+            if (!batch.isCancelled()) {
+                if (budget <= 0 || System.nanoTime() >= deadline) {
+                    break;
+                }
+                int applied = batch.applyTo(world, budget, deadline);
+                budget -= applied;
+                editsApplied.add(applied);
+                batch.notifyProgress();
+            }
+            if (!batch.isFinished()) {
+                // out of budget for this tick, carry the rest over
+                break;
+            }
+            pendingBatches.poll();
+            batch.complete();
+        }
+        tickLatency.recordSince(start);
     }
 }
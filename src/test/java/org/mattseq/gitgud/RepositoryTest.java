@@ -0,0 +1,46 @@
+package org.mattseq.gitgud;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import org.junit.jupiter.api.Test;
+import org.mattseq.gitgud.dto.BlameEntry;
+import org.mattseq.gitgud.dto.BlockChange;
+import org.mattseq.gitgud.dto.CommitInfo;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryTest {
+    @Test
+    void blameAfterGcListsNewestCommitFirst() throws Exception {
+        Files.createDirectories(Path.of(".gitgud"));
+        Files.writeString(Path.of(".gitgud/config.json"), "{\"gcKeepRecentCommits\":1,\"gcEveryCommits\":0}");
+        Repository.initialize();
+        // the run directory is kept between test runs, so each run gets a world of its own
+        Repository repository = Repository.forWorld("blame-" + System.nanoTime());
+
+        for (int i = 0; i < 5; i++) {
+            repository.addBlockChange(new BlockChange(new Vector3i(0, 0, 0), "Block" + i, "Block" + (i + 1)), true);
+            assertTrue(repository.saveCommit("c" + i).success);
+            // commits are named by their millisecond
+            Thread.sleep(2);
+        }
+        long newest = repository.getHeadTimestamp();
+
+        // c0 to c3 are squashed into a commit with c3's timestamp, which is indexed again after c4
+        assertTrue(repository.collectGarbage().success);
+        List<CommitInfo> history = repository.getCommitInfoHistory();
+        assertEquals(2, history.size());
+
+        List<BlameEntry> blame = repository.blame(0, 0, 0, 1);
+        assertEquals(1, blame.size());
+        assertEquals(newest, blame.get(0).commitTimestamp);
+        assertEquals("Block5", blame.get(0).change.getNewBlockId());
+
+        List<BlameEntry> full = repository.blame(0, 0, 0, 10);
+        assertEquals(2, full.size());
+        assertEquals(history.get(1).timestamp, full.get(1).commitTimestamp);
+    }
+}
@@ -0,0 +1,87 @@
+package org.mattseq.gitgud.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeBufferTest {
+    @Test
+    void sortByTimestampKeepsOrderOfEqualTimestamps() {
+        // enough changes that the merge step runs, not just the insertion sort for short ranges
+        Random random = new Random(14);
+        ChangeBuffer changes = new ChangeBuffer();
+        for (int i = 0; i < 1000; i++) {
+            // x holds the insertion order, every field is moved together
+            changes.add(i, i + 1, i + 2, i + 3, i + 4, random.nextInt(20));
+        }
+
+        changes.sortByTimestamp();
+
+        assertEquals(1000, changes.size());
+        for (int i = 1; i < changes.size(); i++) {
+            assertTrue(changes.timestamp(i - 1) <= changes.timestamp(i), "timestamps out of order at " + i);
+            if (changes.timestamp(i - 1) == changes.timestamp(i)) {
+                assertTrue(changes.x(i - 1) < changes.x(i), "equal timestamps reordered at " + i);
+            }
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            int x = changes.x(i);
+            assertEquals(x + 1, changes.y(i));
+            assertEquals(x + 2, changes.z(i));
+            assertEquals(x + 3, changes.oldBlock(i));
+            assertEquals(x + 4, changes.newBlock(i));
+        }
+    }
+
+    @Test
+    void sortByAlreadySortedKeysLeavesChangesInPlace() {
+        ChangeBuffer changes = new ChangeBuffer();
+        for (int i = 0; i < 40; i++) {
+            changes.add(i, 0, 0, 0, 0, i / 4);
+        }
+
+        changes.sortByTimestamp();
+
+        for (int i = 0; i < changes.size(); i++) {
+            assertEquals(i, changes.x(i));
+        }
+    }
+
+    @Test
+    void removeIfKeepsOrderOfTheRest() {
+        ChangeBuffer changes = new ChangeBuffer(2);
+        for (int i = 0; i < 50; i++) {
+            changes.add(i, -i, i * 2, i + 100, i + 200, 1000L + i);
+        }
+
+        int removed = changes.removeIf(index -> changes.x(index) % 3 == 0);
+
+        assertEquals(17, removed);
+        assertEquals(33, changes.size());
+        int expected = 0;
+        for (int i = 0; i < changes.size(); i++) {
+            do {
+                expected++;
+            } while (expected % 3 == 0);
+            assertEquals(expected, changes.x(i));
+            assertEquals(-expected, changes.y(i));
+            assertEquals(expected * 2, changes.z(i));
+            assertEquals(expected + 100, changes.oldBlock(i));
+            assertEquals(expected + 200, changes.newBlock(i));
+            assertEquals(1000L + expected, changes.timestamp(i));
+        }
+    }
+
+    @Test
+    void removeIfWithNothingMatchingRemovesNothing() {
+        ChangeBuffer changes = new ChangeBuffer();
+        changes.add(1, 2, 3, 4, 5, 6);
+
+        assertEquals(0, changes.removeIf(index -> false));
+        assertEquals(1, changes.size());
+        assertEquals(changes.size(), changes.removeIf(index -> true));
+        assertTrue(changes.isEmpty());
+    }
+}
@@ -0,0 +1,132 @@
+package org.mattseq.gitgud.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeJournalTest {
+    private static final int STONE = BlockPalette.id("Journal_Test_Stone");
+    private static final int DIRT = BlockPalette.id("Journal_Test_Dirt");
+    private static final int GRASS = BlockPalette.id("Journal_Test_Grass");
+
+    @TempDir
+    Path journalPath;
+
+    @Test
+    void recoverReplaysRecordsAcrossSegmentsInOrder() throws IOException {
+        // every append goes to a segment of its own
+        ChangeJournal journal = new ChangeJournal(journalPath, 1);
+        journal.append(changes(0, STONE, DIRT, 100));
+        journal.append(changes(0, DIRT, GRASS, 101));
+        journal.append(changes(1, STONE, GRASS, 102));
+        journal.close();
+        assertEquals(3, segments().size());
+
+        WorkingSet recovered = recover();
+        ChangeBuffer changes = recovered.snapshot();
+        assertEquals(2, changes.size());
+        assertEquals(0, changes.x(0));
+        assertEquals(STONE, changes.oldBlock(0));
+        assertEquals(GRASS, changes.newBlock(0));
+        assertEquals(1, changes.x(1));
+    }
+
+    @Test
+    void checkpointReplacesEverythingBeforeIt() throws IOException {
+        ChangeJournal journal = new ChangeJournal(journalPath, 1 << 20);
+        journal.append(changes(0, STONE, DIRT, 100));
+        journal.append(changes(1, STONE, DIRT, 101));
+        journal.checkpoint(changes(2, STONE, GRASS, 102));
+        journal.append(changes(3, STONE, GRASS, 103));
+        journal.close();
+        // the segments before the checkpoint are gone
+        assertEquals(1, segments().size());
+
+        ChangeBuffer changes = recover().snapshot();
+        assertEquals(2, changes.size());
+        assertEquals(2, changes.x(0));
+        assertEquals(3, changes.x(1));
+    }
+
+    @Test
+    void emptyCheckpointClearsTheJournal() throws IOException {
+        ChangeJournal journal = new ChangeJournal(journalPath, 1 << 20);
+        journal.append(changes(0, STONE, DIRT, 100));
+        journal.checkpoint(new ChangeBuffer());
+        journal.close();
+
+        assertTrue(recover().isEmpty());
+    }
+
+    @Test
+    void damagedTailIsCutOffAndLaterAppendsStillReplay() throws IOException {
+        ChangeJournal journal = new ChangeJournal(journalPath, 1 << 20);
+        journal.append(changes(0, STONE, DIRT, 100));
+        journal.append(changes(1, STONE, DIRT, 101));
+        journal.close();
+        Path segment = segments().get(0);
+        long firstRecordBytes = Files.size(segment) / 2;
+        // a crash in the middle of the second record's write
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(segment) - 3);
+        }
+
+        ChangeJournal reopened = new ChangeJournal(journalPath, 1 << 20);
+        WorkingSet recovered = new WorkingSet();
+        reopened.recover(recovered);
+        assertEquals(1, recovered.size());
+        assertEquals(firstRecordBytes, Files.size(segment));
+
+        reopened.append(changes(2, STONE, DIRT, 102));
+        reopened.close();
+        ChangeBuffer changes = recover().snapshot();
+        assertEquals(2, changes.size());
+        assertEquals(0, changes.x(0));
+        assertEquals(2, changes.x(1));
+    }
+
+    @Test
+    void recordWithBadChecksumEndsItsSegment() throws IOException {
+        ChangeJournal journal = new ChangeJournal(journalPath, 1 << 20);
+        journal.append(changes(0, STONE, DIRT, 100));
+        journal.append(changes(1, STONE, DIRT, 101));
+        journal.close();
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(segment, bytes);
+
+        ChangeBuffer changes = recover().snapshot();
+        assertEquals(1, changes.size());
+        assertEquals(0, changes.x(0));
+    }
+
+    private WorkingSet recover() throws IOException {
+        ChangeJournal journal = new ChangeJournal(journalPath, 1 << 20);
+        WorkingSet workingSet = new WorkingSet();
+        journal.recover(workingSet);
+        journal.close();
+        return workingSet;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(journalPath)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static ChangeBuffer changes(int x, int oldBlock, int newBlock, long timestamp) {
+        ChangeBuffer changes = new ChangeBuffer();
+        changes.add(x, 64, 0, oldBlock, newBlock, timestamp);
+        return changes;
+    }
+}
@@ -0,0 +1,160 @@
+package org.mattseq.gitgud.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mattseq.gitgud.dto.Commit;
+import org.mattseq.gitgud.dto.CommitInfo;
+import org.mattseq.gitgud.dto.Region;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitCodecTest {
+    @TempDir
+    Path dictionariesPath;
+
+    @Test
+    void roundTripKeepsEveryChangeWithEachCodec() throws IOException {
+        Compression.setDictionariesPath(dictionariesPath);
+        Commit commit = randomCommit(5000);
+        for (Compression compression : List.of(Compression.none(), Compression.deflate(1), Compression.DEFAULT, Compression.dictionary(9))) {
+            Commit read = CommitCodec.readCommit(new ByteArrayInputStream(write(commit, compression)), "test", null);
+
+            assertEquals(commit.message, read.message);
+            assertEquals(commit.timestamp, read.timestamp);
+            assertEquals(commit.parentCommit, read.parentCommit);
+            assertEquals(changesByPosition(commit.blockChanges, null), changesByPosition(read.blockChanges, null), compression.describe());
+        }
+    }
+
+    @Test
+    void messageLongerThan64KbSurvives() throws IOException {
+        String message = "é世🌍".repeat(20_000);
+        Commit commit = new Commit(message, new ChangeBuffer(), 1, 0);
+
+        byte[] bytes = write(commit, Compression.DEFAULT);
+
+        assertEquals(message, CommitCodec.readCommit(new ByteArrayInputStream(bytes), "test", null).message);
+        CommitInfo info = CommitCodec.readCommitInfo(new ByteArrayInputStream(bytes), "test");
+        assertEquals(message, info.message);
+        assertEquals(0, info.changeCount);
+    }
+
+    @Test
+    void regionReadKeepsOnlyChangesInside() throws IOException {
+        Commit commit = randomCommit(5000);
+        Region region = new Region(-20, 0, -20, 30, 40, 70);
+
+        Commit read = CommitCodec.readCommit(new ByteArrayInputStream(write(commit, Compression.DEFAULT)), "test", region);
+
+        assertFalse(read.blockChanges.isEmpty());
+        assertEquals(changesByPosition(commit.blockChanges, region), changesByPosition(read.blockChanges, null));
+    }
+
+    @Test
+    void reversedVisitIsTheForwardVisitBackward() throws IOException {
+        Commit commit = randomCommit(5000);
+        byte[] bytes = write(commit, Compression.DEFAULT);
+        List<String> forward = new ArrayList<>();
+        List<String> backward = new ArrayList<>();
+
+        CommitInfo info = CommitCodec.forEachChange(new ByteArrayInputStream(bytes), "test", null,
+                (x, y, z, oldBlock, newBlock, timestamp) -> forward.add(describe(x, y, z, oldBlock, newBlock, timestamp)));
+        CommitCodec.forEachChangeReversed(ByteBuffer.wrap(bytes), "test",
+                (x, y, z, oldBlock, newBlock, timestamp) -> backward.add(describe(x, y, z, oldBlock, newBlock, timestamp)));
+
+        assertEquals(commit.blockChanges.size(), info.changeCount);
+        assertEquals(commit.blockChanges.size(), forward.size());
+        assertEquals(forward, backward.reversed());
+    }
+
+    @Test
+    void unknownVersionIsRejected() throws IOException {
+        byte[] bytes = write(randomCommit(10), Compression.DEFAULT);
+        // the version byte follows the four magic bytes
+        bytes[4] = 99;
+
+        IOException e = assertThrows(IOException.class, () -> CommitCodec.readCommit(new ByteArrayInputStream(bytes), "test", null));
+        assertTrue(e.getMessage().contains("version 99"), e.getMessage());
+    }
+
+    @Test
+    void varIntsAndStringsRoundTrip() throws IOException {
+        long[] longs = {0, 1, -1, 127, 128, Long.MAX_VALUE, Long.MIN_VALUE, 1_700_000_000_000L};
+        int[] ints = {0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (long value : longs) {
+                CommitCodec.writeVarLong(out, CommitCodec.zigzag(value));
+            }
+            for (int value : ints) {
+                CommitCodec.writeVarInt(out, value);
+            }
+            CommitCodec.writeString(out, "");
+            CommitCodec.writeString(out, "Rock_Stone");
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (long value : longs) {
+                assertEquals(value, CommitCodec.unzigzag(CommitCodec.readVarLong(in)));
+            }
+            for (int value : ints) {
+                assertEquals(value, CommitCodec.readVarInt(in));
+            }
+            assertEquals("", CommitCodec.readString(in));
+            assertEquals("Rock_Stone", CommitCodec.readString(in));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private static byte[] write(Commit commit, Compression compression) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CommitCodec.writeCommit(bytes, commit, compression);
+        return bytes.toByteArray();
+    }
+
+    // changes spread over many areas, with repeated positions and negative coordinates
+    private static Commit randomCommit(int changeCount) {
+        Random random = new Random(1);
+        int[] blocks = new int[8];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = BlockPalette.id("Codec_Test_Block_" + i);
+        }
+        ChangeBuffer changes = new ChangeBuffer();
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < changeCount; i++) {
+            timestamp += random.nextInt(50);
+            changes.add(random.nextInt(400) - 200, random.nextInt(128), random.nextInt(400) - 200,
+                    blocks[random.nextInt(blocks.length)], blocks[random.nextInt(blocks.length)], timestamp);
+        }
+        return new Commit("random", changes, timestamp, timestamp - 60_000);
+    }
+
+    // blocks keep the order of changes to one position, but not the order between positions
+    private static Map<Long, List<String>> changesByPosition(ChangeBuffer changes, Region region) {
+        Map<Long, List<String>> byPosition = new HashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            if (region == null || changes.contains(region, i)) {
+                byPosition.computeIfAbsent(changes.positionKey(i), key -> new ArrayList<>())
+                        .add(describe(changes.x(i), changes.y(i), changes.z(i), changes.oldBlock(i), changes.newBlock(i), changes.timestamp(i)));
+            }
+        }
+        return byPosition;
+    }
+
+    private static String describe(int x, int y, int z, int oldBlock, int newBlock, long timestamp) {
+        return x + "," + y + "," + z + " " + oldBlock + "->" + newBlock + " @" + timestamp;
+    }
+}
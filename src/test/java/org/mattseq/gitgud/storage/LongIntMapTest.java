@@ -0,0 +1,60 @@
+package org.mattseq.gitgud.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongIntMapTest {
+    @Test
+    void putOverwritesAndRemoveForgets() {
+        LongIntMap map = new LongIntMap();
+        assertEquals(LongIntMap.MISSING, map.get(7));
+
+        map.put(7, 0);
+        map.put(7, 3);
+        assertEquals(3, map.get(7));
+        assertEquals(1, map.size());
+
+        map.remove(7);
+        map.remove(7);
+        assertEquals(LongIntMap.MISSING, map.get(7));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void matchesHashMapAcrossResizesAndRemovals() {
+        // few distinct keys, so probe runs collide and removals have entries to shift back
+        Random random = new Random(14);
+        LongIntMap map = new LongIntMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long key = PositionKeys.pack(random.nextInt(64) - 32, random.nextInt(8), random.nextInt(64) - 32);
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                int value = random.nextInt(1000);
+                map.put(key, value);
+                expected.put(key, value);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int x = -32; x < 32; x++) {
+            for (int y = 0; y < 8; y++) {
+                for (int z = -32; z < 32; z++) {
+                    long key = PositionKeys.pack(x, y, z);
+                    assertEquals((int) expected.getOrDefault(key, LongIntMap.MISSING), map.get(key), "key " + x + "," + y + "," + z);
+                }
+            }
+        }
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(LongIntMap.MISSING, map.get(PositionKeys.pack(0, 0, 0)));
+    }
+}
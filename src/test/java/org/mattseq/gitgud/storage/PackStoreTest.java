@@ -0,0 +1,102 @@
+package org.mattseq.gitgud.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackStoreTest {
+    @TempDir
+    Path packsPath;
+
+    @Test
+    void squashedCommitSurvivesPackingWithoutCompaction() throws IOException {
+        PackStore packs = new PackStore(packsPath);
+        packs.load();
+        packs.write(List.of(1L, 2L, 3L), timestamp -> bytes("original " + timestamp));
+
+        // gc squashes a run ending at 3: the packed copy stops being served and a loose file takes over
+        packs.remove(2);
+        packs.remove(3);
+        // compaction is skipped, then the loose squash of 3 is packed
+        packs.write(List.of(3L), timestamp -> bytes("squashed " + timestamp));
+        assertEquals("squashed 3", read(packs, 3));
+
+        PackStore reopened = new PackStore(packsPath);
+        reopened.load();
+        assertEquals(Set.of(1L, 3L), reopened.timestamps());
+        assertEquals("original 1", read(reopened, 1));
+        assertEquals("squashed 3", read(reopened, 3));
+    }
+
+    @Test
+    void compactionWritesNewPackBeforeDeletingOldOne() throws IOException {
+        PackStore packs = new PackStore(packsPath);
+        packs.load();
+        packs.write(List.of(1L, 2L, 3L), timestamp -> bytes("original " + timestamp));
+        Path original = onlyPack();
+
+        packs.remove(3);
+        packs.write(List.of(3L), timestamp -> bytes("squashed " + timestamp));
+        assertTrue(packs.compact() > 0);
+
+        assertFalse(Files.exists(original));
+        assertEquals(2, packs.packCount());
+        assertEquals("original 1", read(packs, 1));
+        assertEquals("squashed 3", read(packs, 3));
+
+        PackStore reopened = new PackStore(packsPath);
+        reopened.load();
+        assertEquals(Set.of(1L, 2L, 3L), reopened.timestamps());
+        assertEquals("original 2", read(reopened, 2));
+        assertEquals("squashed 3", read(reopened, 3));
+        assertEquals(2, reopened.packCount());
+    }
+
+    @Test
+    void compactionWithSameFirstAndLastCommitTakesNewName() throws IOException {
+        PackStore packs = new PackStore(packsPath);
+        packs.load();
+        packs.write(List.of(1L, 2L, 3L), timestamp -> bytes("original " + timestamp));
+        Path original = onlyPack();
+
+        packs.remove(2);
+        packs.compact();
+
+        Path compacted = onlyPack();
+        assertNotEquals(original.getFileName(), compacted.getFileName());
+        PackStore reopened = new PackStore(packsPath);
+        reopened.load();
+        assertEquals(Set.of(1L, 3L), reopened.timestamps());
+        assertEquals("original 3", read(reopened, 3));
+    }
+
+    private Path onlyPack() throws IOException {
+        try (Stream<Path> files = Files.list(packsPath)) {
+            List<Path> packFiles = files.filter(file -> file.getFileName().toString().endsWith(PackStore.EXTENSION)).toList();
+            assertEquals(1, packFiles.size());
+            return packFiles.get(0);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(PackStore packs, long commitTimestamp) {
+        ByteBuffer bytes = packs.bytes(commitTimestamp);
+        assertNotNull(bytes, "commit " + commitTimestamp + " is not packed");
+        byte[] copy = new byte[bytes.remaining()];
+        bytes.get(copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+}
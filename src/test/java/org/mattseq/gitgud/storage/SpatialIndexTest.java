@@ -0,0 +1,100 @@
+package org.mattseq.gitgud.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mattseq.gitgud.dto.Region;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialIndexTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void commitsAtListsNewestFirstWhateverOrderTheyWereAdded() throws IOException {
+        SpatialIndex index = new SpatialIndex(directory.resolve("spatial"));
+        index.reset();
+        index.add(100, changesAt(1, 1, 1));
+        index.add(300, changesAt(2, 2, 2));
+        // a squashed commit keeps the timestamp of its run's newest member, older than commits added before it
+        index.add(200, changesAt(3, 3, 3));
+
+        assertArrayEquals(new long[]{300, 200, 100}, index.commitsAt(0, 0, 0));
+        assertArrayEquals(new long[0], index.commitsAt(SpatialIndex.CELL_SIZE, 0, 0));
+
+        SpatialIndex reloaded = new SpatialIndex(directory.resolve("spatial"));
+        assertTrue(reloaded.load());
+        assertArrayEquals(new long[]{300, 200, 100}, reloaded.commitsAt(0, 0, 0));
+    }
+
+    @Test
+    void replayAppliesRemovalsAndReAdds() throws IOException {
+        SpatialIndex index = new SpatialIndex(directory.resolve("spatial"));
+        index.reset();
+        index.add(100, changesAt(1, 1, 1));
+        index.add(200, changesAt(1, 1, 1, 40, 1, 1));
+        index.add(300, changesAt(40, 1, 1));
+        index.remove(200);
+        // added again with different cells, like a commit rewritten in place
+        index.add(100, changesAt(40, 1, 1));
+
+        SpatialIndex reloaded = new SpatialIndex(directory.resolve("spatial"));
+        assertTrue(reloaded.load());
+        assertEquals(2, reloaded.size());
+        assertFalse(reloaded.contains(200));
+        assertArrayEquals(new long[0], reloaded.commitsAt(1, 1, 1));
+        assertArrayEquals(new long[]{300, 100}, reloaded.commitsAt(40, 1, 1));
+    }
+
+    @Test
+    void queryCountsChangesInFullCellsAndFlagsPartialOnes() throws IOException {
+        SpatialIndex index = new SpatialIndex(directory.resolve("spatial"));
+        index.reset();
+        index.add(100, changesAt(1, 1, 1, 2, 2, 2, 20, 1, 1));
+        index.add(200, changesAt(20, 1, 1));
+        index.add(300, changesAt(100, 1, 1));
+
+        // covers the first cell whole and cuts the second
+        List<SpatialIndex.RegionMatch> matches = index.query(new Region(0, 0, 0, 20, 15, 15));
+        assertEquals(2, matches.size());
+        assertEquals(200, matches.get(0).commitTimestamp);
+        assertEquals(0, matches.get(0).changesInFullCells);
+        assertTrue(matches.get(0).touchesPartialCells);
+        assertEquals(100, matches.get(1).commitTimestamp);
+        assertEquals(2, matches.get(1).changesInFullCells);
+        assertTrue(matches.get(1).touchesPartialCells);
+
+        // more cells than have ever been touched, so the touched ones are walked instead
+        assertEquals(Set.of(100L, 200L, 300L), index.commitsIn(new Region(-10_000, 0, -10_000, 10_000, 255, 10_000)));
+    }
+
+    @Test
+    void truncatedFileIsNotLoaded() throws IOException {
+        Path indexPath = directory.resolve("spatial");
+        SpatialIndex index = new SpatialIndex(indexPath);
+        index.reset();
+        index.add(100, changesAt(1, 1, 1));
+        byte[] bytes = Files.readAllBytes(indexPath);
+        Files.write(indexPath, Arrays.copyOf(bytes, bytes.length - 2));
+
+        SpatialIndex reloaded = new SpatialIndex(indexPath);
+        assertFalse(reloaded.load());
+        assertEquals(0, reloaded.size());
+    }
+
+    // groups of x, y, z
+    private static ChangeBuffer changesAt(int... positions) {
+        ChangeBuffer changes = new ChangeBuffer();
+        for (int i = 0; i < positions.length; i += 3) {
+            changes.add(positions[i], positions[i + 1], positions[i + 2], 0, 1, 0);
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,116 @@
+package org.mattseq.gitgud.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkingSetTest {
+    @Test
+    void repeatedEditsCoalesceIntoOneNetChange() {
+        WorkingSet workingSet = new WorkingSet();
+        workingSet.add(1, 2, 3, 10, 11, 100);
+        workingSet.add(1, 2, 3, 11, 12, 101);
+        workingSet.add(1, 2, 3, 12, 13, 102);
+
+        ChangeBuffer changes = workingSet.snapshot();
+        assertEquals(1, changes.size());
+        assertEquals(10, changes.oldBlock(0));
+        assertEquals(13, changes.newBlock(0));
+        assertEquals(102, changes.timestamp(0));
+        // the journal still gets every raw event
+        assertEquals(3, workingSet.unjournaledCount());
+    }
+
+    @Test
+    void editingBackToTheOriginalBlockDropsThePosition() {
+        WorkingSet workingSet = new WorkingSet();
+        workingSet.add(0, 0, 0, 1, 2, 100);
+        workingSet.add(0, 0, 0, 2, 1, 101);
+        workingSet.add(5, 5, 5, 7, 7, 102);
+
+        assertTrue(workingSet.isEmpty());
+        assertTrue(workingSet.snapshot().isEmpty());
+    }
+
+    @Test
+    void snapshotKeepsFirstTouchOrderAcrossCompaction() {
+        WorkingSet workingSet = new WorkingSet();
+        for (int x = 0; x < 200; x++) {
+            workingSet.add(x, 0, 0, 1, 2, x);
+        }
+        // dropping most positions leaves enough garbage slots behind to compact the buffer
+        for (int x = 0; x < 200; x++) {
+            if (x % 10 != 0) {
+                workingSet.add(x, 0, 0, 2, 1, 1000 + x);
+            }
+        }
+        workingSet.add(50, 0, 0, 2, 3, 2000);
+
+        ChangeBuffer changes = workingSet.snapshot();
+        assertEquals(20, changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            assertEquals(i * 10, changes.x(i));
+            assertEquals(1, changes.oldBlock(i));
+            assertEquals(i * 10 == 50 ? 3 : 2, changes.newBlock(i));
+        }
+    }
+
+    @Test
+    void removeCommittedKeepsEditsMadeAfterTheSnapshot() {
+        WorkingSet workingSet = new WorkingSet();
+        workingSet.add(0, 0, 0, 1, 2, 100);
+        workingSet.add(1, 0, 0, 1, 2, 100);
+        workingSet.add(2, 0, 0, 1, 2, 100);
+        ChangeBuffer committed = workingSet.snapshot();
+
+        workingSet.add(1, 0, 0, 2, 3, 101);
+        workingSet.add(2, 0, 0, 2, 1, 102);
+        workingSet.removeCommitted(committed);
+
+        ChangeBuffer changes = workingSet.snapshot();
+        assertEquals(2, changes.size());
+        // further edited: the rest of the change now starts from the committed block
+        assertEquals(1, changes.x(0));
+        assertEquals(2, changes.oldBlock(0));
+        assertEquals(3, changes.newBlock(0));
+        // edited back to the original: now undoes the commit
+        assertEquals(2, changes.x(1));
+        assertEquals(2, changes.oldBlock(1));
+        assertEquals(1, changes.newBlock(1));
+    }
+
+    @Test
+    void olderChangesGoUnderneathNewerOnes() {
+        WorkingSet workingSet = new WorkingSet();
+        workingSet.add(0, 0, 0, 2, 3, 200);
+        ChangeBuffer older = new ChangeBuffer();
+        older.add(0, 0, 0, 1, 2, 100);
+        older.add(9, 0, 0, 1, 2, 101);
+
+        workingSet.addAllOlder(older);
+
+        ChangeBuffer changes = workingSet.snapshot();
+        assertEquals(2, changes.size());
+        assertEquals(0, changes.x(0));
+        assertEquals(1, changes.oldBlock(0));
+        assertEquals(3, changes.newBlock(0));
+        assertEquals(9, changes.x(1));
+    }
+
+    @Test
+    void keepEveryChangeKeepsRawEventsInOrder() {
+        WorkingSet workingSet = new WorkingSet();
+        workingSet.setKeepEveryChange(true);
+        workingSet.add(0, 0, 0, 1, 2, 100);
+        workingSet.add(0, 0, 0, 2, 1, 101);
+
+        ChangeBuffer changes = workingSet.snapshot();
+        assertEquals(2, changes.size());
+        assertEquals(2, changes.newBlock(0));
+        assertEquals(1, changes.newBlock(1));
+
+        // switching back coalesces what is there
+        workingSet.setKeepEveryChange(false);
+        assertTrue(workingSet.isEmpty());
+    }
+}